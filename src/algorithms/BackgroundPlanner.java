@@ -0,0 +1,114 @@
+package algorithms;
+
+import map.Map;
+import map.MapConstants;
+import robot.MotionCostModel;
+import robot.Robot;
+import robot.RobotConstants;
+import robot.RobotConstants.MOVEMENT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps the START --> GOAL fastest path up to date while the exploration runs, so that the movements are ready when
+ * FP_START arrives. mapChanged() is called after every sensor frame; if the cells changed, it copies their states
+ * and replans on a background thread, cancelling the computation for the previous map (FastestPathAlgo stops when
+ * its thread is interrupted).
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class BackgroundPlanner {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "BackgroundPlanner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final double clearanceWeight;
+    private final MotionCostModel costModel;
+
+    private byte[] lastStates = null;
+    private Future<ArrayList<MOVEMENT>> pending = null;
+    private int requests = 0;
+    private int cancelled = 0;
+
+    public BackgroundPlanner(double clearanceWeight, MotionCostModel costModel) {
+        this.clearanceWeight = clearanceWeight;
+        this.costModel = costModel;
+    }
+
+    /**
+     * Replans in the background if the cell states of the map changed since the last call. Must be called by the
+     * thread that updates the map.
+     */
+    public synchronized void mapChanged(Map exploredMap) {
+        byte[] states = new byte[MapConstants.MAP_SIZE];
+        exploredMap.copyCellStates(states);
+        if (Arrays.equals(states, lastStates)) return;
+        lastStates = states;
+
+        if (pending != null && pending.cancel(true)) cancelled++;
+        requests++;
+        pending = executor.submit(() -> plan(states));
+    }
+
+    /**
+     * Plans START --> GOAL on a map rebuilt from the given cell states. Returns null if no path exists or the
+     * computation was cancelled.
+     */
+    private ArrayList<MOVEMENT> plan(byte[] states) {
+        Robot planBot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, false);
+        Map map = new Map(planBot);
+        map.setAllUnexplored();
+
+        int i = 0;
+        for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+            for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+                if (states[i] != MapConstants.CELL_UNEXPLORED) map.getCell(row, col).setIsExplored(true);
+                if (states[i] == MapConstants.CELL_OBSTACLE) map.setObstacleCell(row, col, true);
+                i++;
+            }
+        }
+
+        FastestPathAlgo planner = new FastestPathAlgo(map, planBot);
+        planner.setClearanceWeight(clearanceWeight);
+        planner.setCostModel(costModel);
+        planner.setQuiet(true);
+        return planner.planFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+    }
+
+    /**
+     * Waits up to timeoutMillis for the plan for the latest map and returns it. Returns null if there is none yet.
+     */
+    public ArrayList<MOVEMENT> awaitPlan(long timeoutMillis) {
+        Future<ArrayList<MOVEMENT>> f;
+        synchronized (this) {
+            f = pending;
+        }
+        if (f == null) return null;
+
+        try {
+            return f.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException | CancellationException e) {
+            System.out.println("BackgroundPlanner.awaitPlan() --> " + e.getClass().getSimpleName());
+        }
+        return null;
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        System.out.println("BackgroundPlanner: " + requests + " plans requested, " + cancelled + " cancelled.");
+    }
+}
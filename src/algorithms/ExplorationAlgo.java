@@ -1,6 +1,7 @@
 package algorithms;
 
 import map.Cell;
+import map.ComponentLabels;
 import map.Map;
 import map.MapConstants;
 import robot.Robot;
@@ -8,6 +9,11 @@ import robot.RobotConstants;
 import robot.RobotConstants.DIRECTION;
 import robot.RobotConstants.MOVEMENT;
 import utils.CommMgr;
+import utils.FlightEvents;
+import utils.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Exploration algorithm for the robot.
@@ -27,6 +33,26 @@ public class ExplorationAlgo {
     private long endTime;
     private int lastCalibrate;
     private boolean calibrationMode;
+    private int pipelineWindow = 1;
+    private int pipelineMispredicts;
+    private BackgroundPlanner backgroundPlanner = null;
+    private double unexploredPenalty = -1;  // see FastestPathAlgo.setUnexploredPenalty()
+    private boolean tourPlanning = false;
+
+    private static final long TOUR_TIME_BUDGET = 50;   // max. time spent improving a pocket tour (ms)
+    private static final int MAX_TOUR_ROUNDS = 3;      // pocket tours planned before heading home
+
+    private static final int SPECULATION_MAX_UNKNOWN = 6;  // max. unexplored cells enumerated per speculation
+    private static final int LOOK_RIGHT = 1, LOOK_FORWARD = 2, LOOK_LEFT = 4;
+    private boolean speculative = false;
+    private int[] specCells;            // cells read by lookRight(), lookForward() & lookLeft(), -1 if outside the arena
+    private byte[] specStates;          // states of specCells when the speculation was made
+    private int[] specUnknown;          // indices into specCells of the unexplored cells that were enumerated
+    private byte[] specTable;           // look results for every outcome of the pending sensor frame
+    private int specRow, specCol;
+    private DIRECTION specDir;
+    private int specLooks = -1;         // look results committed for [specRow, specCol, specDir], -1 if none
+    private int specHits, specMisses;
 
     public ExplorationAlgo(Map exploredMap, Map realMap, Robot bot, int coverageLimit, int timeLimit) {
         this.exploredMap = exploredMap;
@@ -36,6 +62,52 @@ public class ExplorationAlgo {
         this.timeLimit = timeLimit;
     }
 
+    /**
+     * Sets the maximum number of FORWARD instructions that may be sent ahead before their sensor frames are
+     * processed. A window of 1 is the default lock-step behaviour.
+     */
+    public void setPipelineWindow(int pipelineWindow) {
+        this.pipelineWindow = Math.max(1, pipelineWindow);
+    }
+
+    /**
+     * Enables speculative decisions: while a move is in flight, the wall follower's look results are precomputed for
+     * every outcome of the pending sensor frame and the matching one is committed when the frame arrives. Only used
+     * with the real robot (or the emulator); run with -ea to check every committed result against the map.
+     */
+    public void setSpeculative(boolean speculative) {
+        this.speculative = speculative;
+    }
+
+    /**
+     * Lets goHome() plan through unexplored cells at the given extra cost per cell, verifying them with the sensors
+     * on the way. A negative penalty (the default) keeps the paths home on explored cells.
+     */
+    public void setUnexploredPenalty(double unexploredPenalty) {
+        this.unexploredPenalty = unexploredPenalty;
+    }
+
+    /**
+     * Makes the robot sweep up the unexplored pockets with a TourPlanner tour before heading home.
+     */
+    public void setTourPlanning(boolean tourPlanning) {
+        this.tourPlanning = tourPlanning;
+    }
+
+    /**
+     * Returns the number of pipelined runs that had to be backed up because a sensor frame changed the decision.
+     */
+    public int getPipelineMispredicts() {
+        return pipelineMispredicts;
+    }
+
+    /**
+     * Sets a BackgroundPlanner to be notified after every sensor frame.
+     */
+    public void setBackgroundPlanner(BackgroundPlanner backgroundPlanner) {
+        this.backgroundPlanner = backgroundPlanner;
+    }
+
     /**
      * Main method that is called to start the exploration.
      */
@@ -92,11 +164,16 @@ public class ExplorationAlgo {
      */
     private void explorationLoop(int r, int c) {
         do {
-            nextMove();
+            if (pipelineWindow <= 1 || !pipelineForwardRun(r, c)) nextMove();
 
             areaExplored = calculateAreaExplored();
             System.out.println("Area explored: " + areaExplored);
 
+            if (isReachableAreaKnown()) {
+                System.out.println("All reachable cells explored.");
+                break;
+            }
+
             if (bot.getRobotPosRow() == r && bot.getRobotPosCol() == c) {
                 if (areaExplored >= 100) {
                     break;
@@ -104,9 +181,36 @@ public class ExplorationAlgo {
             }
         } while (areaExplored <= coverageLimit && System.currentTimeMillis() <= endTime);
 
+        if (pipelineMispredicts > 0) System.out.println("Pipeline mispredictions: " + pipelineMispredicts);
+        if (speculative) System.out.println("Speculation hits: " + specHits + ", misses: " + specMisses);
+
+        if (tourPlanning) sweepPockets();
+
         goHome();
     }
 
+    /**
+     * Returns true if every cell the robot's body can cover from its component has been explored. The component
+     * cannot grow any more then: the cells next to it are obstacles or virtual walls.
+     */
+    private boolean isReachableAreaKnown() {
+        ComponentLabels components = exploredMap.getComponents();
+        int label = components.getLabel(bot.getRobotPosRow(), bot.getRobotPosCol());
+        if (label == -1) return false;
+
+        for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+            for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+                if (components.getLabel(row, col) != label) continue;
+                for (int r = row - 1; r <= row + 1; r++) {
+                    for (int c = col - 1; c <= col + 1; c++) {
+                        if (exploredMap.checkValidCoordinates(r, c) && !exploredMap.getCell(r, c).getIsExplored()) return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Determines the next move for the robot and executes it accordingly.
      */
@@ -129,6 +233,7 @@ public class ExplorationAlgo {
      * Returns true if the right side of the robot is free to move into.
      */
     private boolean lookRight() {
+        if (hasSpeculatedLooks()) return (specLooks & LOOK_RIGHT) != 0;
         switch (bot.getRobotCurDir()) {
             case NORTH:
                 return eastFree();
@@ -146,6 +251,7 @@ public class ExplorationAlgo {
      * Returns true if the robot is free to move forward.
      */
     private boolean lookForward() {
+        if (hasSpeculatedLooks()) return (specLooks & LOOK_FORWARD) != 0;
         switch (bot.getRobotCurDir()) {
             case NORTH:
                 return northFree();
@@ -163,6 +269,7 @@ public class ExplorationAlgo {
      * * Returns true if the left side of the robot is free to move into.
      */
     private boolean lookLeft() {
+        if (hasSpeculatedLooks()) return (specLooks & LOOK_LEFT) != 0;
         switch (bot.getRobotCurDir()) {
             case NORTH:
                 return westFree();
@@ -212,16 +319,284 @@ public class ExplorationAlgo {
         return (isExploredNotObstacle(botRow - 1, botCol - 1) && isExploredAndFree(botRow, botCol - 1) && isExploredNotObstacle(botRow + 1, botCol - 1));
     }
 
+    /**
+     * Returns true if the robot with its center at [row, col] can move one cell in the given direction. Same checks
+     * as northFree(), eastFree(), southFree() & westFree() but for any pose.
+     */
+    private boolean isFreeAt(int row, int col, DIRECTION dir) {
+        int dr = rowInc(dir), dc = colInc(dir);
+        int midRow = row + dr, midCol = col + dc;
+        return isExploredNotObstacle(midRow - dc, midCol - dr) && isExploredAndFree(midRow, midCol) && isExploredNotObstacle(midRow + dc, midCol + dr);
+    }
+
+    /**
+     * Returns true if the robot with its center at [row, col] is blocked in the given direction by an arena wall,
+     * a known obstacle or a virtual wall, i.e. no new sensor reading of an unexplored cell can free that side.
+     */
+    private boolean isKnownBlockedAt(int row, int col, DIRECTION dir) {
+        int dr = rowInc(dir), dc = colInc(dir);
+        int midRow = row + dr, midCol = col + dc;
+
+        if (isKnownObstacleOrWall(midRow - dc, midCol - dr) || isKnownObstacleOrWall(midRow + dc, midCol + dr)) return true;
+        if (isKnownObstacleOrWall(midRow, midCol)) return true;
+        Cell mid = exploredMap.getCell(midRow, midCol);
+        return mid.getIsExplored() && mid.getIsVirtualWall();
+    }
+
+    private boolean isKnownObstacleOrWall(int r, int c) {
+        if (!exploredMap.checkValidCoordinates(r, c)) return true;
+        Cell tmp = exploredMap.getCell(r, c);
+        return tmp.getIsExplored() && tmp.getIsObstacle();
+    }
+
+    private static int rowInc(DIRECTION dir) {
+        return dir == DIRECTION.NORTH ? 1 : (dir == DIRECTION.SOUTH ? -1 : 0);
+    }
+
+    private static int colInc(DIRECTION dir) {
+        return dir == DIRECTION.EAST ? 1 : (dir == DIRECTION.WEST ? -1 : 0);
+    }
+
+    /**
+     * Precomputes lookRight(), lookForward() & lookLeft() at the robot's current pose for every outcome of the
+     * pending sensor frame, i.e. every state of the unexplored cells they read and every virtual wall state of the
+     * three cells moved into. Called while the move is in flight; gives up if too many cells are unexplored.
+     */
+    private void speculate() {
+        specTable = null;
+        specRow = bot.getRobotPosRow();
+        specCol = bot.getRobotPosCol();
+        specDir = bot.getRobotCurDir();
+
+        DIRECTION[] looks = {DIRECTION.getNext(specDir), specDir, DIRECTION.getPrevious(specDir)};
+        specCells = new int[9];
+        specStates = new byte[9];
+        int[] unknown = new int[9];
+        int numUnknown = 0;
+        for (int i = 0; i < 3; i++) {
+            int dr = rowInc(looks[i]), dc = colInc(looks[i]);
+            int midRow = specRow + dr, midCol = specCol + dc;
+            for (int j = -1; j <= 1; j++) {
+                int r = midRow + j * dc, c = midCol + j * dr;
+                int k = i * 3 + j + 1;
+                if (!exploredMap.checkValidCoordinates(r, c)) {
+                    specCells[k] = -1;
+                    continue;
+                }
+                specCells[k] = r * MapConstants.MAP_COLS + c;
+                specStates[k] = getCellState(r, c);
+                if (specStates[k] == MapConstants.CELL_UNEXPLORED && indexOfCell(specCells, k) == k) unknown[numUnknown++] = k;
+            }
+        }
+        if (numUnknown > SPECULATION_MAX_UNKNOWN) return;
+        specUnknown = Arrays.copyOf(unknown, numUnknown);
+
+        int outcomes = 1;
+        for (int i = 0; i < numUnknown; i++) outcomes *= 3;
+        specTable = new byte[outcomes << 3];
+
+        byte[] states = new byte[9];
+        for (int outcome = 0; outcome < outcomes; outcome++) {
+            System.arraycopy(specStates, 0, states, 0, 9);
+            for (int i = 0, rest = outcome; i < numUnknown; i++, rest /= 3) {
+                int k = specUnknown[i];
+                for (int l = 0; l < 9; l++) {
+                    if (specCells[l] == specCells[k]) states[l] = (byte) (rest % 3);
+                }
+            }
+            for (int walls = 0; walls < 8; walls++) {
+                int result = 0;
+                for (int i = 0; i < 3; i++) {
+                    if (specCells[i * 3] == -1 || specCells[i * 3 + 1] == -1 || specCells[i * 3 + 2] == -1) continue;
+                    if (states[i * 3] == MapConstants.CELL_FREE && states[i * 3 + 1] == MapConstants.CELL_FREE && states[i * 3 + 2] == MapConstants.CELL_FREE && (walls & (1 << i)) == 0) {
+                        result |= 1 << i;
+                    }
+                }
+                specTable[(outcome << 3) | walls] = (byte) result;
+            }
+        }
+    }
+
+    /**
+     * Looks up the outcome of the sensor frame that has just been processed in the table built by speculate(). The
+     * speculation misses if a cell that was already explored has changed state.
+     */
+    private void commitSpeculation() {
+        if (specTable == null || bot.getRobotPosRow() != specRow || bot.getRobotPosCol() != specCol || bot.getRobotCurDir() != specDir) {
+            specMisses++;
+            return;
+        }
+
+        for (int k = 0; k < 9; k++) {
+            if (specCells[k] == -1 || specStates[k] == MapConstants.CELL_UNEXPLORED) continue;
+            if (getCellState(specCells[k] / MapConstants.MAP_COLS, specCells[k] % MapConstants.MAP_COLS) != specStates[k]) {
+                specMisses++;
+                return;
+            }
+        }
+
+        int outcome = 0;
+        for (int i = specUnknown.length - 1; i >= 0; i--) {
+            int cell = specCells[specUnknown[i]];
+            outcome = outcome * 3 + getCellState(cell / MapConstants.MAP_COLS, cell % MapConstants.MAP_COLS);
+        }
+        int walls = 0;
+        for (int i = 0; i < 3; i++) {
+            int cell = specCells[i * 3 + 1];
+            if (cell != -1 && exploredMap.isVirtualWallCell(cell / MapConstants.MAP_COLS, cell % MapConstants.MAP_COLS)) walls |= 1 << i;
+        }
+
+        specLooks = specTable[(outcome << 3) | walls];
+        specHits++;
+        assert specLooks == computeLooks() : "Speculated looks " + specLooks + " != " + computeLooks() + " at [" + specRow + ", " + specCol + ", " + specDir + "]";
+    }
+
+    /**
+     * Returns the results of lookRight(), lookForward() & lookLeft() computed from the map, ignoring any committed
+     * speculation. Checks commitSpeculation() when assertions are enabled (java -ea).
+     */
+    private int computeLooks() {
+        int committed = specLooks;
+        specLooks = -1;
+        int result = (lookRight() ? LOOK_RIGHT : 0) | (lookForward() ? LOOK_FORWARD : 0) | (lookLeft() ? LOOK_LEFT : 0);
+        specLooks = committed;
+        return result;
+    }
+
+    /**
+     * Returns true if look results have been committed for the robot's current pose.
+     */
+    private boolean hasSpeculatedLooks() {
+        return specLooks != -1 && bot.getRobotPosRow() == specRow && bot.getRobotPosCol() == specCol && bot.getRobotCurDir() == specDir;
+    }
+
+    private byte getCellState(int r, int c) {
+        Cell cell = exploredMap.getCell(r, c);
+        if (!cell.getIsExplored()) return MapConstants.CELL_UNEXPLORED;
+        return cell.getIsObstacle() ? MapConstants.CELL_OBSTACLE : MapConstants.CELL_FREE;
+    }
+
+    private static int indexOfCell(int[] cells, int k) {
+        for (int i = 0; i < k; i++) {
+            if (cells[i] == cells[k]) return i;
+        }
+        return k;
+    }
+
+    /**
+     * Sends up to pipelineWindow FORWARD instructions back-to-back when the wall follower would choose FORWARD at
+     * every step whatever the pending sensor frames show, i.e. the right side is blocked by known walls/obstacles
+     * and the cells ahead are already explored & free. The run stops at [homeRow, homeCol]. The sensor frames are
+     * then processed in order against the pose at which each was taken. If a frame shows that the lock-step wall
+     * follower would not have moved on from its pose, the remaining frames are consumed, the robot backs up to that
+     * pose and false is returned so that the decision is made again from there. Also returns false if no run of at
+     * least two moves is possible.
+     */
+    private boolean pipelineForwardRun(int homeRow, int homeCol) {
+        DIRECTION dir = bot.getRobotCurDir();
+        int row = bot.getRobotPosRow();
+        int col = bot.getRobotPosCol();
+
+        int steps = 0;
+        while (steps < pipelineWindow) {
+            if (!isKnownBlockedAt(row, col, DIRECTION.getNext(dir)) || !isFreeAt(row, col, dir)) break;
+
+            row += rowInc(dir);
+            col += colInc(dir);
+            steps++;
+
+            if (row == homeRow && col == homeCol) break;
+        }
+        if (steps < 2) return false;
+
+        int[][] poses = new int[steps][];
+        for (int i = 0; i < steps; i++) {
+            bot.move(MOVEMENT.FORWARD);
+            poses[i] = new int[]{bot.getRobotPosRow(), bot.getRobotPosCol()};
+        }
+        Metrics.getMetrics().recordMove(MOVEMENT.FORWARD, steps);
+        exploredMap.repaint();
+
+        // Reconcile the sensor frames with the pose each one was taken at and check that the lock-step wall follower
+        // would have made the same decision with the updated map.
+        int mispredicted = -1;
+        for (int i = 0; i < steps; i++) {
+            bot.setRobotPos(poses[i][0], poses[i][1]);
+            senseAndRepaint();
+
+            if (mispredicted == -1 && i < steps - 1 && (isFreeAt(poses[i][0], poses[i][1], DIRECTION.getNext(dir)) || !isFreeAt(poses[i][0], poses[i][1], dir))) {
+                mispredicted = i;
+            }
+        }
+
+        lastCalibrate += steps - 1;
+        if (mispredicted == -1) {
+            calibrateAfterMove();
+            return true;
+        }
+
+        System.out.println("Pipeline mispredicted at (" + poses[mispredicted][0] + ", " + poses[mispredicted][1] + ")");
+        pipelineMispredicts++;
+        for (int i = steps - 1; i > mispredicted; i--) {
+            moveBot(MOVEMENT.BACKWARD);
+        }
+        return false;
+    }
+
+    /**
+     * Visits the observation poses of the unexplored pockets in the order planned by TourPlanner, skipping those
+     * whose cells were seen on the way. Plans a new tour while the previous one explored new cells, up to
+     * MAX_TOUR_ROUNDS times, and stops when the coverage or time limit is reached.
+     */
+    private void sweepPockets() {
+        for (int round = 0; round < MAX_TOUR_ROUNDS; round++) {
+            TourPlanner planner = new TourPlanner(exploredMap, TOUR_TIME_BUDGET);
+            ArrayList<int[]> tour = planner.planTour(bot.getRobotPosRow(), bot.getRobotPosCol(), RobotConstants.START_ROW, RobotConstants.START_COL);
+            System.out.println("Pocket tour: " + tour.size() + " pose(s) for " + planner.getPocketCount() + " pocket(s), " + planner.getSkippedCount() + " not observable.");
+            if (tour.isEmpty()) return;
+
+            int areaBefore = areaExplored;
+            for (int[] pose : tour) {
+                if (areaExplored > coverageLimit || System.currentTimeMillis() > endTime) return;
+                if (!hasUnexploredInView(pose[0], pose[1], DIRECTION.values()[pose[2]])) continue;
+
+                if (bot.getRobotPosRow() != pose[0] || bot.getRobotPosCol() != pose[1]) {
+                    FastestPathAlgo goToPose = new FastestPathAlgo(exploredMap, bot, realMap);
+                    String result = goToPose.runFastestPath(pose[0], pose[1]);
+                    if (result == null || bot.getRobotPosRow() != pose[0] || bot.getRobotPosCol() != pose[1]) continue;
+                }
+
+                if (bot.getRobotCurDir() != DIRECTION.values()[pose[2]]) {
+                    turnBotDirection(DIRECTION.values()[pose[2]]);
+                } else {
+                    senseAndRepaint();
+                }
+                areaExplored = calculateAreaExplored();
+                System.out.println("Area explored: " + areaExplored);
+            }
+            if (areaExplored == areaBefore) return;
+        }
+    }
+
+    private boolean hasUnexploredInView(int row, int col, DIRECTION dir) {
+        for (int cell : TourPlanner.getCellsInView(exploredMap, row, col, dir)) {
+            if (!exploredMap.getCell(cell / MapConstants.MAP_COLS, cell % MapConstants.MAP_COLS).getIsExplored()) return true;
+        }
+        return false;
+    }
+
     /**
      * Returns the robot to START after exploration and points the bot northwards.
      */
     private void goHome() {
         if (!bot.getTouchedGoal() && coverageLimit == 300 && timeLimit == 3600) {
             FastestPathAlgo goToGoal = new FastestPathAlgo(exploredMap, bot, realMap);
+            goToGoal.setUnexploredPenalty(unexploredPenalty);
             goToGoal.runFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
         }
 
         FastestPathAlgo returnToStart = new FastestPathAlgo(exploredMap, bot, realMap);
+        returnToStart.setUnexploredPenalty(unexploredPenalty);
         returnToStart.runFastestPath(RobotConstants.START_ROW, RobotConstants.START_COL);
 
         System.out.println("Exploration complete!");
@@ -282,15 +657,39 @@ public class ExplorationAlgo {
      * Moves the bot, repaints the map and calls senseAndRepaint().
      */
     private void moveBot(MOVEMENT m) {
+        FlightEvents.Move moveEvent = new FlightEvents.Move();
+        moveEvent.begin();
+
         bot.move(m);
+        Metrics.getMetrics().recordMove(m, 1);
         exploredMap.repaint();
         if (m != MOVEMENT.CALIBRATE) {
+            // Simulated moves complete instantly, so there is no flight time to hide the speculation in.
+            boolean speculate = speculative && bot.getRealBot();
+            if (speculate) speculate();
             senseAndRepaint();
+            if (speculate) commitSpeculation();
         } else {
             CommMgr commMgr = CommMgr.getCommMgr();
             commMgr.recvMsg();
         }
 
+        calibrateAfterMove();
+
+        moveEvent.end();
+        if (moveEvent.shouldCommit()) {
+            moveEvent.movement = String.valueOf(MOVEMENT.print(m));
+            moveEvent.row = bot.getRobotPosRow();
+            moveEvent.col = bot.getRobotPosCol();
+            moveEvent.commit();
+        }
+    }
+
+    /**
+     * Calibrates the real robot on the spot if possible or, if it has not been calibrated for a while, turns it
+     * towards a suitable wall and calibrates.
+     */
+    private void calibrateAfterMove() {
         if (bot.getRealBot() && !calibrationMode) {
             calibrationMode = true;
 
@@ -316,9 +715,13 @@ public class ExplorationAlgo {
      * Sets the bot's sensors, processes the sensor data and repaints the map.
      */
     private void senseAndRepaint() {
+        specLooks = -1;
         bot.setSensors();
+        long senseStart = System.nanoTime(), recvWaitStart = CommMgr.getCommMgr().getStats().getRecvWaitNanos();
         bot.sense(exploredMap, realMap);
+        Metrics.getMetrics().recordSensorFrame(senseStart, recvWaitStart);
         exploredMap.repaint();
+        if (backgroundPlanner != null) backgroundPlanner.mapChanged(exploredMap);
     }
 
     /**
@@ -366,11 +769,20 @@ public class ExplorationAlgo {
      * to its original direction.
      */
     private void calibrateBot(DIRECTION targetDir) {
+        FlightEvents.Calibration calibrationEvent = new FlightEvents.Calibration();
+        calibrationEvent.begin();
+
         DIRECTION origDir = bot.getRobotCurDir();
 
         turnBotDirection(targetDir);
         moveBot(MOVEMENT.CALIBRATE);
         turnBotDirection(origDir);
+
+        calibrationEvent.end();
+        if (calibrationEvent.shouldCommit()) {
+            calibrationEvent.direction = targetDir.toString();
+            calibrationEvent.commit();
+        }
     }
 
     /**
@@ -1,14 +1,20 @@
 package algorithms;
 
 import map.Cell;
+import map.ComponentLabels;
 import map.Map;
 import map.MapConstants;
+import robot.MotionCostModel;
 import robot.Robot;
 import robot.RobotConstants;
 import robot.RobotConstants.DIRECTION;
 import robot.RobotConstants.MOVEMENT;
+import utils.CommMgr;
+import utils.FlightEvents;
+import utils.Metrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Stack;
 
@@ -36,6 +42,13 @@ public class FastestPathAlgo {
     private final Map realMap;
     private int loopCount;
     private boolean explorationMode;
+    private double clearanceWeight = 0;     // extra cost per cell of missing clearance, see setClearanceWeight()
+    private MotionCostModel costModel = MotionCostModel.DEFAULT;
+    private double unexploredPenalty = -1;  // extra cost of entering an unexplored cell, see setUnexploredPenalty()
+    private final boolean[] excluded = new boolean[MapConstants.MAP_SIZE];  // cells ruled out by an unverifiable path
+    private boolean quiet = false;          // plan without printing or recording into Metrics, see setQuiet()
+
+    private static final int MAX_OPTIMISTIC_REPLANS = 10;  // replans before unexplored cells are ruled out
 
     public FastestPathAlgo(Map exploredMap, Robot bot) {
         this.realMap = null;
@@ -80,11 +93,53 @@ public class FastestPathAlgo {
         this.loopCount = 0;
     }
 
+    /**
+     * Makes the planner trade path length for clearance: entering a cell whose distance to the nearest obstacle or
+     * wall is below CLEARANCE_TARGET costs clearanceWeight for every missing cell of distance. 0 (the default)
+     * disables the clearance cost.
+     */
+    public void setClearanceWeight(double clearanceWeight) {
+        this.clearanceWeight = clearanceWeight;
+    }
+
+    /**
+     * Makes the planner optimistic: unexplored cells can be visited at the given extra cost per cell instead of
+     * being ruled out. The path is then verified with the sensors as it is executed in exploration mode, and
+     * replanned from where a cell ahead turns out to be blocked or could not be sensed. A cell that could not be
+     * verified is ruled out for the following plans. A negative penalty (the default) forbids unexplored cells.
+     */
+    public void setUnexploredPenalty(double unexploredPenalty) {
+        this.unexploredPenalty = unexploredPenalty;
+    }
+
+    /**
+     * Makes planFastestPath() neither print its progress nor record into Metrics, for plans that are not part of the
+     * run (e.g. BackgroundPlanner's speculative plans).
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    /**
+     * Sets the model used for the costs of straight runs & turns.
+     */
+    public void setCostModel(MotionCostModel costModel) {
+        this.costModel = costModel;
+    }
+
+    /**
+     * Returns the clearance cost of moving the robot's center into [row, col].
+     */
+    static double getClearanceCost(Map map, int row, int col, double clearanceWeight) {
+        if (clearanceWeight == 0) return 0;
+        return clearanceWeight * Math.max(0, RobotConstants.CLEARANCE_TARGET - map.getClearance(row, col));
+    }
+
     /**
      * Returns true if the cell can be visited.
      */
     private boolean canBeVisited(Cell c) {
-        return c.getIsExplored() && !c.getIsObstacle() && !c.getIsVirtualWall();
+        return (c.getIsExplored() || unexploredPenalty >= 0) && !c.getIsObstacle() && !c.getIsVirtualWall() && !excluded[c.getRow() * MapConstants.MAP_COLS + c.getCol()];
     }
 
     /**
@@ -112,14 +167,14 @@ public class FastestPathAlgo {
      */
     private double costH(Cell b, int goalRow, int goalCol) {
         // Heuristic: The no. of moves will be equal to the difference in the row and column values.
-        double movementCost = (Math.abs(goalCol - b.getCol()) + Math.abs(goalRow - b.getRow())) * RobotConstants.MOVE_COST;
+        double movementCost = (Math.abs(goalCol - b.getCol()) + Math.abs(goalRow - b.getRow())) * costModel.getMoveCost();
 
         if (movementCost == 0) return 0;
 
-        // Heuristic: If b is not in the same row or column, one turn will be needed.
+        // Heuristic: If b is not in the same row or column, one turn and a second straight run will be needed.
         double turnCost = 0;
-        if (goalCol - b.getCol() != 0 || goalRow - b.getRow() != 0) {
-            turnCost = RobotConstants.TURN_COST;
+        if (goalCol != b.getCol() && goalRow != b.getRow()) {
+            turnCost = costModel.getTurnCost() + costModel.getRunStartCost();
         }
 
         return movementCost + turnCost;
@@ -152,30 +207,113 @@ public class FastestPathAlgo {
         if (numOfTurn > 2) {
             numOfTurn = numOfTurn % 2;
         }
-        return (numOfTurn * RobotConstants.TURN_COST);
+        return (numOfTurn * costModel.getTurnCost());
     }
 
     /**
-     * Calculate the actual cost of moving from Cell a to Cell b (assuming both are neighbors).
+     * Calculate the actual cost of moving from Cell a to Cell b (assuming both are neighbors). A move that does not
+     * continue the straight run a was reached by also pays the cost model's run start cost.
      */
     private double costG(Cell a, Cell b, DIRECTION aDir) {
-        double moveCost = RobotConstants.MOVE_COST; // one movement to neighbor
+        double moveCost = costModel.getMoveCost(); // one movement to neighbor
 
         double turnCost;
         DIRECTION targetDir = getTargetDir(a.getRow(), a.getCol(), aDir, b);
         turnCost = getTurnCost(aDir, targetDir);
 
-        return moveCost + turnCost;
+        if (turnCost > 0 || !parents.containsKey(a)) {
+            moveCost += costModel.getRunStartCost();
+        }
+
+        double cellCost = getClearanceCost(exploredMap, b.getRow(), b.getCol(), clearanceWeight);
+        if (!b.getIsExplored()) cellCost += unexploredPenalty;
+
+        return moveCost + turnCost + cellCost;
     }
 
     /**
-     * Find the fastest path from the robot's current position to [goalRow, goalCol].
+     * Find the fastest path from the robot's current position to [goalRow, goalCol] and execute it.
      */
     public String runFastestPath(int goalRow, int goalCol) {
-        System.out.println("Calculating fastest path from (" + current.getRow() + ", " + current.getCol() + ") to goal (" + goalRow + ", " + goalCol + ")...");
+        ArrayList<MOVEMENT> movements = planFastestPath(goalRow, goalCol);
+        if (movements == null) return null;
+
+        byte[] before = getState();
+        String result = executeMovements(movements);
+
+        // An optimistic path is replanned from wherever its execution stopped. Only a replan on a changed map or from
+        // a new pose counts as one; the others only differ by the cells ruled out.
+        int replans = 0;
+        while (unexploredPenalty >= 0 && result.equals("T")) {
+            if (!Arrays.equals(before, getState())) Metrics.getMetrics().recordReplan();
+            if (++replans > MAX_OPTIMISTIC_REPLANS) disableOptimism();
+
+            initObject(exploredMap, bot);
+            movements = planFastestPath(goalRow, goalCol);
+            if (movements == null && unexploredPenalty >= 0) {
+                // The ruled out cells may have cut off every optimistic path.
+                disableOptimism();
+                initObject(exploredMap, bot);
+                movements = planFastestPath(goalRow, goalCol);
+            }
+            if (movements == null) return null;
+            before = getState();
+            result = executeMovements(movements);
+        }
+
+        return result;
+    }
+
+    /**
+     * Falls back to planning on explored cells only, which need no verification.
+     */
+    private void disableOptimism() {
+        unexploredPenalty = -1;
+        Arrays.fill(excluded, false);
+    }
+
+    /**
+     * Returns the cell states of the map followed by the robot's pose.
+     */
+    private byte[] getState() {
+        byte[] state = new byte[MapConstants.MAP_SIZE + 3];
+        exploredMap.copyCellStates(state);
+        state[MapConstants.MAP_SIZE] = (byte) bot.getRobotPosRow();
+        state[MapConstants.MAP_SIZE + 1] = (byte) bot.getRobotPosCol();
+        state[MapConstants.MAP_SIZE + 2] = (byte) bot.getRobotCurDir().ordinal();
+        return state;
+    }
+
+    /**
+     * Find the fastest path from the robot's current position to [goalRow, goalCol] and return the movements needed
+     * to follow it without executing them. Returns null if no path is found.
+     */
+    public ArrayList<MOVEMENT> planFastestPath(int goalRow, int goalCol) {
+        log("Calculating fastest path from (" + current.getRow() + ", " + current.getCol() + ") to goal (" + goalRow + ", " + goalCol + ")...");
+
+        FlightEvents.Planning planEvent = new FlightEvents.Planning();
+        planEvent.begin();
+        long planStart = System.nanoTime();
+        int openPeak = toVisit.size();
+
+        // A goal outside the robot's component cannot be reached through visitable cells (unless unexplored cells
+        // can be visited too).
+        ComponentLabels components = exploredMap.getComponents();
+        int startLabel = components.getLabel(current.getRow(), current.getCol());
+        if (unexploredPenalty < 0 && startLabel != -1 && (current.getRow() != goalRow || current.getCol() != goalCol) && components.getLabel(goalRow, goalCol) != startLabel) {
+            recordPlan(planEvent, planStart, openPeak, goalRow, goalCol, false);
+            log("Goal not reachable. Path not found!");
+            return null;
+        }
 
         Stack<Cell> path;
         do {
+            // Stop if a newer plan made this one obsolete (see BackgroundPlanner).
+            if (Thread.currentThread().isInterrupted()) {
+                log("Fastest path calculation cancelled.");
+                return null;
+            }
+
             loopCount++;
 
             // Get cell with minimum cost from toVisit and assign it to current.
@@ -190,10 +328,11 @@ public class FastestPathAlgo {
             toVisit.remove(current);    // remove current from toVisit
 
             if (visited.contains(exploredMap.getCell(goalRow, goalCol))) {
-                System.out.println("Goal visited. Path found!");
-                path = getPath(goalRow, goalCol);
-                printFastestPath(path);
-                return executePath(path, goalRow, goalCol);
+                log("Goal visited. Path found!");
+                recordPlan(planEvent, planStart, openPeak, goalRow, goalCol, true);
+                path = smoothPath(getPath(goalRow, goalCol));
+                if (!quiet) printFastestPath(path);
+                return getMovements(path, goalRow, goalCol);
             }
 
             // Setup neighbors of current cell. [Top, Bottom, Left, Right].
@@ -243,12 +382,33 @@ public class FastestPathAlgo {
                     }
                 }
             }
+            openPeak = Math.max(openPeak, toVisit.size());
         } while (!toVisit.isEmpty());
 
-        System.out.println("Path not found!");
+        recordPlan(planEvent, planStart, openPeak, goalRow, goalCol, false);
+        log("Path not found!");
         return null;
     }
 
+    /**
+     * Records the finished search in the Metrics (unless quiet) and commits its JFR event.
+     */
+    private void recordPlan(FlightEvents.Planning planEvent, long planStart, int openPeak, int goalRow, int goalCol, boolean pathFound) {
+        if (!quiet) Metrics.getMetrics().recordPlan(loopCount, openPeak, System.nanoTime() - planStart);
+
+        planEvent.end();
+        if (planEvent.shouldCommit()) {
+            planEvent.startRow = bot.getRobotPosRow();
+            planEvent.startCol = bot.getRobotPosCol();
+            planEvent.goalRow = goalRow;
+            planEvent.goalCol = goalCol;
+            planEvent.expansions = loopCount;
+            planEvent.openSetPeak = openPeak;
+            planEvent.pathFound = pathFound;
+            planEvent.commit();
+        }
+    }
+
     /**
      * Generates path in reverse using the parents HashMap.
      */
@@ -268,17 +428,41 @@ public class FastestPathAlgo {
     }
 
     /**
-     * Executes the fastest path and returns a StringBuilder object with the path steps.
+     * Rewrites the path with PathSmoother to remove unnecessary turns and reports the turns saved.
      */
-    private String executePath(Stack<Cell> path, int goalRow, int goalCol) {
-        StringBuilder outputString = new StringBuilder();
+    private Stack<Cell> smoothPath(Stack<Cell> path) {
+        ArrayList<Cell> cells = new ArrayList<>();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            cells.add(path.get(i));
+        }
+
+        PathSmoother smoother = new PathSmoother(exploredMap, clearanceWeight, costModel);
+        smoother.setUnexploredPenalty(unexploredPenalty);
+        smoother.setExcludedCells(excluded);
+        ArrayList<Cell> smoothed = smoother.smooth(cells, bot.getRobotCurDir());
+        if (smoother.getTurnsSaved() > 0) {
+            log("Path smoothing saved " + smoother.getTurnsSaved() + " turn(s).");
+        }
+        if (!quiet) Metrics.getMetrics().recordTurnsSaved(smoother.getTurnsSaved());
+
+        Stack<Cell> result = new Stack<>();
+        for (int i = smoothed.size() - 1; i >= 0; i--) {
+            result.push(smoothed.get(i));
+        }
+        return result;
+    }
 
+    /**
+     * Converts the path into the movements needed to follow it from the robot's current position & direction.
+     */
+    private ArrayList<MOVEMENT> getMovements(Stack<Cell> path, int goalRow, int goalCol) {
         Cell temp = path.pop();
         DIRECTION targetDir;
 
         ArrayList<MOVEMENT> movements = new ArrayList<>();
 
-        Robot tempBot = new Robot(1, 1, false);
+        Robot tempBot = new Robot(bot.getRobotPosRow(), bot.getRobotPosCol(), false);
+        tempBot.setRobotDir(bot.getRobotCurDir());
         tempBot.setSpeed(0);
         while ((tempBot.getRobotPosRow() != goalRow) || (tempBot.getRobotPosCol() != goalCol)) {
             if (tempBot.getRobotPosRow() == temp.getRow() && tempBot.getRobotPosCol() == temp.getCol()) {
@@ -294,58 +478,93 @@ public class FastestPathAlgo {
                 m = MOVEMENT.FORWARD;
             }
 
-            System.out.println("Movement " + MOVEMENT.print(m) + " from (" + tempBot.getRobotPosRow() + ", " + tempBot.getRobotPosCol() + ") to (" + temp.getRow() + ", " + temp.getCol() + ")");
+            log("Movement " + MOVEMENT.print(m) + " from (" + tempBot.getRobotPosRow() + ", " + tempBot.getRobotPosCol() + ") to (" + temp.getRow() + ", " + temp.getCol() + ")");
 
             tempBot.move(m);
             movements.add(m);
-            outputString.append(MOVEMENT.print(m));
+        }
+
+        return movements;
+    }
+
+    /**
+     * Executes the movements and returns a String with the path steps. Returns "T" if the execution was terminated
+     * early because of a newly detected obstacle or, for an optimistic path, cells ahead that could not be verified.
+     */
+    public String executeMovements(ArrayList<MOVEMENT> movements) {
+        StringBuilder outputString = new StringBuilder();
+        for (MOVEMENT x : movements) {
+            outputString.append(MOVEMENT.print(x));
         }
 
         if (!bot.getRealBot() || explorationMode) {
             for (MOVEMENT x : movements) {
                 if (x == MOVEMENT.FORWARD) {
+                    if (unexploredPenalty >= 0 && !isAheadExplored()) {
+                        // Look ahead from here first. If the cells stay unknown, the cell ahead is ruled out so that
+                        // the next plan takes another way.
+                        if (explorationMode) senseAndRepaint();
+                        if (!isAheadExplored()) {
+                            excluded[(bot.getRobotPosRow() + rowInc(bot.getRobotCurDir())) * MapConstants.MAP_COLS + bot.getRobotPosCol() + colInc(bot.getRobotCurDir())] = true;
+                            System.out.println("Cells ahead not verified. Replanning fastest path...");
+                            return "T";
+                        }
+                    }
                     if (!canMoveForward()) {
                         System.out.println("Early termination of fastest path execution.");
+                        Metrics.getMetrics().recordEarlyTermination();
                         return "T";
                     }
                 }
 
                 bot.move(x);
+                Metrics.getMetrics().recordMove(x, 1);
                 this.exploredMap.repaint();
 
                 // During exploration, use sensor data to update exploredMap.
-                if (explorationMode) {
-                    bot.setSensors();
-                    bot.sense(this.exploredMap, this.realMap);
-                    this.exploredMap.repaint();
-                }
+                if (explorationMode) senseAndRepaint();
             }
         } else {
-            int fCount = 0;
+            int fCount = 0, sent = 0;
             for (MOVEMENT x : movements) {
                 if (x == MOVEMENT.FORWARD) {
                     fCount++;
                     if (fCount == 10) {
                         bot.moveForwardMultiple(fCount);
+                        Metrics.getMetrics().recordMove(MOVEMENT.FORWARD, fCount);
                         fCount = 0;
+                        sent++;
                         exploredMap.repaint();
                     }
                 } else if (x == MOVEMENT.RIGHT || x == MOVEMENT.LEFT) {
                     if (fCount > 0) {
                         bot.moveForwardMultiple(fCount);
+                        Metrics.getMetrics().recordMove(MOVEMENT.FORWARD, fCount);
                         fCount = 0;
+                        sent++;
                         exploredMap.repaint();
                     }
 
                     bot.move(x);
+                    Metrics.getMetrics().recordMove(x, 1);
+                    sent++;
                     exploredMap.repaint();
                 }
             }
 
             if (fCount > 0) {
                 bot.moveForwardMultiple(fCount);
+                Metrics.getMetrics().recordMove(MOVEMENT.FORWARD, fCount);
+                sent++;
                 exploredMap.repaint();
             }
+
+            // Read the robot's reply to every instruction. Their arrival times give MotionTelemetry its multi-cell
+            // run samples, without which f(k) cannot be fitted.
+            CommMgr comm = CommMgr.getCommMgr();
+            for (int i = 0; i < sent; i++) {
+                comm.recvMsg();
+            }
         }
 
         System.out.println("\nMovements: " + outputString.toString());
@@ -385,6 +604,41 @@ public class FastestPathAlgo {
         return false;
     }
 
+    /**
+     * Returns true if the cells the robot moves into with the current heading have been explored.
+     */
+    private boolean isAheadExplored() {
+        int row = bot.getRobotPosRow();
+        int col = bot.getRobotPosCol();
+        int dr = rowInc(bot.getRobotCurDir());
+        int dc = colInc(bot.getRobotCurDir());
+
+        for (int i = -1; i <= 1; i++) {
+            int r = row + 2 * dr + i * dc, c = col + 2 * dc + i * dr;
+            if (exploredMap.checkValidCoordinates(r, c) && !exploredMap.getCell(r, c).getIsExplored()) return false;
+        }
+        return true;
+    }
+
+    private static int rowInc(DIRECTION dir) {
+        return dir == DIRECTION.NORTH ? 1 : (dir == DIRECTION.SOUTH ? -1 : 0);
+    }
+
+    private static int colInc(DIRECTION dir) {
+        return dir == DIRECTION.EAST ? 1 : (dir == DIRECTION.WEST ? -1 : 0);
+    }
+
+    /**
+     * Sets the bot's sensors, processes the sensor data and repaints the map.
+     */
+    private void senseAndRepaint() {
+        bot.setSensors();
+        long senseStart = System.nanoTime(), recvWaitStart = CommMgr.getCommMgr().getStats().getRecvWaitNanos();
+        bot.sense(this.exploredMap, this.realMap);
+        Metrics.getMetrics().recordSensorFrame(senseStart, recvWaitStart);
+        this.exploredMap.repaint();
+    }
+
     /**
      * Returns the movement to execute to get from one direction to another.
      */
@@ -441,6 +695,10 @@ public class FastestPathAlgo {
         return MOVEMENT.ERROR;
     }
 
+    private void log(String msg) {
+        if (!quiet) System.out.println(msg);
+    }
+
     /**
      * Prints the fastest path from the Stack object.
      */
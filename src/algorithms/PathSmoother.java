@@ -0,0 +1,261 @@
+package algorithms;
+
+import map.Cell;
+import map.Map;
+import map.MapConstants;
+import robot.MotionCostModel;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// @formatter:off
+/**
+ * Post-processes a cell path (e.g. the output of the A* search) into an equivalent-or-cheaper path with fewer
+ * direction changes. Ties in the A* search often produce staircases even though an L-shaped route with the same
+ * no. of moves exists.
+ *
+ * Dynamic programming over (path index, heading): from path[i], the robot may jump to any later path[j] that can be
+ * reached by a straight segment or an L-shaped pair of segments whose cells can all be visited (explored, not an
+ * obstacle & not a virtual wall, i.e. clear of the robot's footprint). The cost of a jump is the no. of cells moved
+ * times the move cost plus the turns needed times the turn cost (plus the run start cost after a turn) of the
+ * planner's MotionCostModel, plus the clearance cost of the cells entered when the planner uses one.
+ *
+ * @author Suyash Lakhotia
+ */
+// @formatter:on
+
+public class PathSmoother {
+    private final Map map;
+    private final double clearanceWeight;
+    private final MotionCostModel costModel;
+    private double unexploredPenalty = -1;  // extra cost of an unexplored cell, see setUnexploredPenalty()
+    private boolean[] excluded = null;      // cells that cannot be visited, indexed by row * MAP_COLS + col
+    private int turnsSaved;
+
+    public PathSmoother(Map map) {
+        this(map, 0, MotionCostModel.DEFAULT);
+    }
+
+    public PathSmoother(Map map, double clearanceWeight, MotionCostModel costModel) {
+        this.map = map;
+        this.clearanceWeight = clearanceWeight;
+        this.costModel = costModel;
+    }
+
+    /**
+     * Lets the smoothed path run through unexplored cells at the given extra cost per cell, as in
+     * FastestPathAlgo.setUnexploredPenalty(). A negative penalty (the default) forbids unexplored cells.
+     */
+    public void setUnexploredPenalty(double unexploredPenalty) {
+        this.unexploredPenalty = unexploredPenalty;
+    }
+
+    /**
+     * Returns the no. of turns removed by the last call to smooth().
+     */
+    public int getTurnsSaved() {
+        return turnsSaved;
+    }
+
+    /**
+     * Rules out the cells set in excluded (indexed by row * MAP_COLS + col), as FastestPathAlgo does.
+     */
+    public void setExcludedCells(boolean[] excluded) {
+        this.excluded = excluded;
+    }
+
+    /**
+     * Returns true if the cell can be visited.
+     */
+    private boolean canBeVisited(int row, int col) {
+        if (!map.checkValidCoordinates(row, col)) return false;
+        if (excluded != null && excluded[row * MapConstants.MAP_COLS + col]) return false;
+        Cell c = map.getCell(row, col);
+        return (c.getIsExplored() || unexploredPenalty >= 0) && !c.getIsObstacle() && !c.getIsVirtualWall();
+    }
+
+    /**
+     * Returns the clearance cost & unexplored penalty of moving the robot's center into [row, col].
+     */
+    private double getCellCost(int row, int col) {
+        double cost = FastestPathAlgo.getClearanceCost(map, row, col, clearanceWeight);
+        if (!map.getCell(row, col).getIsExplored()) cost += unexploredPenalty;
+        return cost;
+    }
+
+    /**
+     * Returns the cell costs of the cells after [r1, c1] up to & including [r2, c2], or -1 if one of them cannot
+     * be visited. The cells must share a row or a column.
+     */
+    private double getLineCost(int r1, int c1, int r2, int c2) {
+        int dr = Integer.signum(r2 - r1);
+        int dc = Integer.signum(c2 - c1);
+        int r = r1, c = c1;
+        double cost = 0;
+        while (r != r2 || c != c2) {
+            r += dr;
+            c += dc;
+            if (!canBeVisited(r, c)) return -1;
+            cost += getCellCost(r, c);
+        }
+        return cost;
+    }
+
+    /**
+     * Returns the heading of a straight move from [r1, c1] to [r2, c2].
+     */
+    private static DIRECTION getDir(int r1, int c1, int r2, int c2) {
+        if (r2 > r1) return DIRECTION.NORTH;
+        if (r2 < r1) return DIRECTION.SOUTH;
+        if (c2 > c1) return DIRECTION.EAST;
+        return DIRECTION.WEST;
+    }
+
+    private static int getTurns(DIRECTION a, DIRECTION b) {
+        int numOfTurn = Math.abs(a.ordinal() - b.ordinal());
+        if (numOfTurn > 2) numOfTurn = numOfTurn % 2;
+        return numOfTurn;
+    }
+
+    /**
+     * Returns the no. of turns needed to follow the path from startDir.
+     */
+    public static int countTurns(List<Cell> path, DIRECTION startDir) {
+        int turns = 0;
+        DIRECTION dir = startDir;
+        for (int i = 1; i < path.size(); i++) {
+            Cell a = path.get(i - 1), b = path.get(i);
+            DIRECTION next = getDir(a.getRow(), a.getCol(), b.getRow(), b.getCol());
+            turns += getTurns(dir, next);
+            dir = next;
+        }
+        return turns;
+    }
+
+    /**
+     * Returns the cost of a move made of the given no. of cells & turns.
+     */
+    private double getMoveCost(int moves, int turns) {
+        return moves * costModel.getMoveCost() + turns * costModel.getTurnCost() + (turns > 0 ? costModel.getRunStartCost() : 0);
+    }
+
+    /**
+     * Returns the cost of following the path from startDir.
+     */
+    private double getPathCost(List<Cell> path, DIRECTION startDir) {
+        double cost = 0;
+        DIRECTION dir = startDir;
+        for (int i = 1; i < path.size(); i++) {
+            Cell a = path.get(i - 1), b = path.get(i);
+            DIRECTION next = getDir(a.getRow(), a.getCol(), b.getRow(), b.getCol());
+            cost += getMoveCost(1, getTurns(dir, next)) + getCellCost(b.getRow(), b.getCol());
+            dir = next;
+        }
+        return cost;
+    }
+
+    /**
+     * Returns a path from path[0] to path[last] made of adjacent cells that costs no more than the given one when
+     * followed from startDir, with as few turns as possible. The given path is returned if it cannot be improved.
+     */
+    public ArrayList<Cell> smooth(List<Cell> path, DIRECTION startDir) {
+        int n = path.size();
+        int numDirs = DIRECTION.values().length;
+
+        double[][] cost = new double[n][numDirs];
+        int[][] prevIndex = new int[n][numDirs];
+        int[][] prevDir = new int[n][numDirs];
+        Cell[][] corner = new Cell[n][numDirs];
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < numDirs; d++) cost[i][d] = Double.MAX_VALUE;
+        }
+        cost[0][startDir.ordinal()] = 0;
+
+        for (int i = 0; i < n - 1; i++) {
+            Cell from = path.get(i);
+            for (int d = 0; d < numDirs; d++) {
+                if (cost[i][d] == Double.MAX_VALUE) continue;
+                DIRECTION dir = DIRECTION.values()[d];
+
+                for (int j = i + 1; j < n; j++) {
+                    Cell to = path.get(j);
+                    int moves = Math.abs(to.getRow() - from.getRow()) + Math.abs(to.getCol() - from.getCol());
+                    if (moves == 0) continue;
+
+                    if (from.getRow() == to.getRow() || from.getCol() == to.getCol()) {
+                        // Straight segment.
+                        double lineCost = getLineCost(from.getRow(), from.getCol(), to.getRow(), to.getCol());
+                        if (lineCost >= 0) {
+                            DIRECTION next = getDir(from.getRow(), from.getCol(), to.getRow(), to.getCol());
+                            relax(cost, prevIndex, prevDir, corner, i, d, j, next, null, cost[i][d] + lineCost + getMoveCost(moves, getTurns(dir, next)));
+                        }
+                    } else {
+                        // L-shaped segments, turning at either corner.
+                        int[][] corners = {{from.getRow(), to.getCol()}, {to.getRow(), from.getCol()}};
+                        for (int[] k : corners) {
+                            double firstCost = getLineCost(from.getRow(), from.getCol(), k[0], k[1]);
+                            double secondCost = getLineCost(k[0], k[1], to.getRow(), to.getCol());
+                            if (firstCost < 0 || secondCost < 0) continue;
+                            DIRECTION first = getDir(from.getRow(), from.getCol(), k[0], k[1]);
+                            DIRECTION second = getDir(k[0], k[1], to.getRow(), to.getCol());
+                            int firstMoves = Math.abs(k[0] - from.getRow()) + Math.abs(k[1] - from.getCol());
+                            double c = cost[i][d] + firstCost + secondCost + getMoveCost(firstMoves, getTurns(dir, first)) + getMoveCost(moves - firstMoves, getTurns(first, second));
+                            relax(cost, prevIndex, prevDir, corner, i, d, j, second, map.getCell(k[0], k[1]), c);
+                        }
+                    }
+                }
+            }
+        }
+
+        int bestDir = 0;
+        for (int d = 1; d < numDirs; d++) {
+            if (cost[n - 1][d] < cost[n - 1][bestDir]) bestDir = d;
+        }
+
+        turnsSaved = 0;
+        if (cost[n - 1][bestDir] >= getPathCost(path, startDir) - 1e-9) {
+            return new ArrayList<>(path);
+        }
+
+        // Collect the waypoints in reverse, then expand them into adjacent cells.
+        ArrayList<Cell> waypoints = new ArrayList<>();
+        int i = n - 1, d = bestDir;
+        waypoints.add(path.get(i));
+        while (i > 0) {
+            Cell k = corner[i][d];
+            int pi = prevIndex[i][d], pd = prevDir[i][d];
+            if (k != null) waypoints.add(k);
+            waypoints.add(path.get(pi));
+            i = pi;
+            d = pd;
+        }
+
+        ArrayList<Cell> result = new ArrayList<>();
+        result.add(waypoints.get(waypoints.size() - 1));
+        for (int w = waypoints.size() - 2; w >= 0; w--) {
+            Cell a = result.get(result.size() - 1), b = waypoints.get(w);
+            int dr = Integer.signum(b.getRow() - a.getRow());
+            int dc = Integer.signum(b.getCol() - a.getCol());
+            int r = a.getRow(), c = a.getCol();
+            while (r != b.getRow() || c != b.getCol()) {
+                r += dr;
+                c += dc;
+                result.add(map.getCell(r, c));
+            }
+        }
+
+        turnsSaved = countTurns(path, startDir) - countTurns(result, startDir);
+        return result;
+    }
+
+    private static void relax(double[][] cost, int[][] prevIndex, int[][] prevDir, Cell[][] corner, int i, int d, int j, DIRECTION next, Cell k, double c) {
+        int nd = next.ordinal();
+        if (c < cost[j][nd]) {
+            cost[j][nd] = c;
+            prevIndex[j][nd] = i;
+            prevDir[j][nd] = d;
+            corner[j][nd] = k;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package algorithms;
+
+import map.Cell;
+import map.Map;
+import map.MapConstants;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Plans a tour that sweeps up the unexplored pockets left after the wall follower has returned to START.
+ *
+ * 1. The unexplored cells are clustered into 4-connected pockets.
+ * 2. For every pocket, the observation pose is the reachable pose (robot center & heading) from which the front
+ *    sensors see the most cells of the pocket, the closest one to the robot if tied.
+ * 3. A BFS distance field (in moves) is computed from every pose and gives the cost matrix between the poses.
+ * 4. The visiting order of the open tour robot --> poses --> home is built with the nearest neighbour heuristic
+ *    and improved with 2-opt until no move helps or the time budget runs out.
+ *
+ * @author Suyash Lakhotia
+ */
+// @formatter:on
+
+public class TourPlanner {
+    private final Map map;
+    private final long timeBudget;          // max. time spent on 2-opt (ms)
+
+    private int numPockets;
+    private int numSkipped;
+
+    public TourPlanner(Map map, long timeBudget) {
+        this.map = map;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Returns the no. of pockets found by the last call to planTour().
+     */
+    public int getPocketCount() {
+        return numPockets;
+    }
+
+    /**
+     * Returns the no. of pockets from the last call to planTour() that no reachable pose can observe.
+     */
+    public int getSkippedCount() {
+        return numSkipped;
+    }
+
+    /**
+     * Returns the observation poses as {row, col, DIRECTION ordinal} in the order they should be visited from the
+     * robot's position [row, col] before heading to [homeRow, homeCol]. The list is empty if there is nothing left
+     * to observe.
+     */
+    public ArrayList<int[]> planTour(int row, int col, int homeRow, int homeCol) {
+        int[] pockets = labelPockets();
+        int[] fromRobot = getDistanceField(row, col);
+
+        // Best observation pose of every pocket, found in one pass over all reachable poses.
+        int[] bestSeen = new int[numPockets];
+        int[][] bestPose = new int[numPockets][];
+        int[] seen = new int[numPockets];
+        for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
+            for (int c = 0; c < MapConstants.MAP_COLS; c++) {
+                if (fromRobot[r * MapConstants.MAP_COLS + c] < 0) continue;
+                for (DIRECTION dir : DIRECTION.values()) {
+                    Arrays.fill(seen, 0);
+                    for (int cell : getCellsInView(map, r, c, dir)) {
+                        if (pockets[cell] >= 0) seen[pockets[cell]]++;
+                    }
+                    for (int p = 0; p < numPockets; p++) {
+                        if (seen[p] == 0) continue;
+                        if (seen[p] > bestSeen[p] || (seen[p] == bestSeen[p] && fromRobot[r * MapConstants.MAP_COLS + c] < fromRobot[bestPose[p][0] * MapConstants.MAP_COLS + bestPose[p][1]])) {
+                            bestSeen[p] = seen[p];
+                            bestPose[p] = new int[]{r, c, dir.ordinal()};
+                        }
+                    }
+                }
+            }
+        }
+
+        ArrayList<int[]> poses = new ArrayList<>();
+        for (int p = 0; p < numPockets; p++) {
+            if (bestPose[p] != null) poses.add(bestPose[p]);
+        }
+        numSkipped = numPockets - poses.size();
+        if (poses.isEmpty()) return poses;
+
+        // Cost matrix: node 0 is the robot, nodes 1..k the poses & node k + 1 home.
+        int k = poses.size();
+        int[][] fields = new int[k + 1][];
+        fields[0] = fromRobot;
+        for (int i = 0; i < k; i++) fields[i + 1] = getDistanceField(poses.get(i)[0], poses.get(i)[1]);
+
+        int homeIndex = homeRow * MapConstants.MAP_COLS + homeCol;
+        int[][] dist = new int[k + 2][k + 2];
+        for (int i = 0; i <= k; i++) {
+            for (int j = 1; j <= k; j++) {
+                dist[i][j] = getCost(fields[i], poses.get(j - 1)[0] * MapConstants.MAP_COLS + poses.get(j - 1)[1]);
+            }
+            dist[i][k + 1] = getCost(fields[i], homeIndex);
+        }
+
+        int[] tour = nearestNeighbour(dist, k);
+        twoOpt(dist, tour);
+
+        ArrayList<int[]> result = new ArrayList<>();
+        for (int i = 1; i <= k; i++) result.add(poses.get(tour[i] - 1));
+        return result;
+    }
+
+    /**
+     * Returns the cells that the front sensors see from the pose, i.e. the cells 2 to 3 cells ahead of the robot's
+     * center in its three columns, as row * MAP_COLS + col. A cell behind a known obstacle is not seen.
+     */
+    static ArrayList<Integer> getCellsInView(Map map, int row, int col, DIRECTION dir) {
+        int dr = dir == DIRECTION.NORTH ? 1 : (dir == DIRECTION.SOUTH ? -1 : 0);
+        int dc = dir == DIRECTION.EAST ? 1 : (dir == DIRECTION.WEST ? -1 : 0);
+
+        ArrayList<Integer> cells = new ArrayList<>();
+        for (int i = -1; i <= 1; i++) {
+            for (int d = RobotConstants.SENSOR_SHORT_RANGE_L + 1; d <= RobotConstants.SENSOR_SHORT_RANGE_H + 1; d++) {
+                int r = row + d * dr + i * dc, c = col + d * dc + i * dr;
+                if (!map.checkValidCoordinates(r, c)) break;
+                cells.add(r * MapConstants.MAP_COLS + c);
+                Cell cell = map.getCell(r, c);
+                if (cell.getIsExplored() && cell.getIsObstacle()) break;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Labels the 4-connected pockets of unexplored cells from 0 to numPockets - 1; other cells are labelled -1.
+     */
+    private int[] labelPockets() {
+        int[] labels = new int[MapConstants.MAP_SIZE];
+        Arrays.fill(labels, -1);
+        numPockets = 0;
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int start = 0; start < MapConstants.MAP_SIZE; start++) {
+            if (labels[start] >= 0 || isExplored(start)) continue;
+
+            labels[start] = numPockets;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                int cell = queue.poll();
+                for (int next : getNeighbours(cell)) {
+                    if (labels[next] < 0 && !isExplored(next)) {
+                        labels[next] = numPockets;
+                        queue.add(next);
+                    }
+                }
+            }
+            numPockets++;
+        }
+        return labels;
+    }
+
+    /**
+     * Returns the no. of moves from [row, col] to every cell the robot's center can visit, or -1 if unreachable.
+     */
+    private int[] getDistanceField(int row, int col) {
+        int[] dist = new int[MapConstants.MAP_SIZE];
+        Arrays.fill(dist, -1);
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int start = row * MapConstants.MAP_COLS + col;
+        dist[start] = 0;
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            for (int next : getNeighbours(cell)) {
+                if (dist[next] < 0 && canBeVisited(next)) {
+                    dist[next] = dist[cell] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static int getCost(int[] field, int cell) {
+        return field[cell] < 0 ? RobotConstants.INFINITE_COST : field[cell];
+    }
+
+    /**
+     * Returns the open tour 0 --> 1..k --> k + 1 built by always visiting the closest pose next.
+     */
+    private static int[] nearestNeighbour(int[][] dist, int k) {
+        int[] tour = new int[k + 2];
+        boolean[] used = new boolean[k + 1];
+        for (int i = 1; i <= k; i++) {
+            int prev = tour[i - 1], best = -1;
+            for (int j = 1; j <= k; j++) {
+                if (!used[j] && (best == -1 || dist[prev][j] < dist[prev][best])) best = j;
+            }
+            used[best] = true;
+            tour[i] = best;
+        }
+        tour[k + 1] = k + 1;
+        return tour;
+    }
+
+    /**
+     * Improves the open tour in place by reversing the segments whose reversal makes it shorter. The end points stay
+     * fixed. Stops when no reversal helps or the time budget has run out.
+     */
+    private void twoOpt(int[][] dist, int[] tour) {
+        long deadline = System.currentTimeMillis() + timeBudget;
+        boolean improved = true;
+        while (improved && System.currentTimeMillis() < deadline) {
+            improved = false;
+            for (int i = 1; i < tour.length - 2; i++) {
+                for (int j = i + 1; j < tour.length - 1; j++) {
+                    // Reversing tour[i..j] replaces edges (i-1, i) & (j, j+1) with (i-1, j) & (i, j+1). The matrix is
+                    // symmetric between poses, so the inner edges keep their cost.
+                    int delta = dist[tour[i - 1]][tour[j]] + dist[tour[i]][tour[j + 1]] - dist[tour[i - 1]][tour[i]] - dist[tour[j]][tour[j + 1]];
+                    if (delta < 0) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int tmp = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = tmp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isExplored(int cell) {
+        return map.getCell(cell / MapConstants.MAP_COLS, cell % MapConstants.MAP_COLS).getIsExplored();
+    }
+
+    /**
+     * Returns true if the robot's center can visit the cell, as in FastestPathAlgo.
+     */
+    private boolean canBeVisited(int cell) {
+        Cell c = map.getCell(cell / MapConstants.MAP_COLS, cell % MapConstants.MAP_COLS);
+        return c.getIsExplored() && !c.getIsObstacle() && !c.getIsVirtualWall();
+    }
+
+    private static ArrayList<Integer> getNeighbours(int cell) {
+        int row = cell / MapConstants.MAP_COLS, col = cell % MapConstants.MAP_COLS;
+        ArrayList<Integer> neighbours = new ArrayList<>(4);
+        if (row + 1 < MapConstants.MAP_ROWS) neighbours.add(cell + MapConstants.MAP_COLS);
+        if (row > 0) neighbours.add(cell - MapConstants.MAP_COLS);
+        if (col > 0) neighbours.add(cell - 1);
+        if (col + 1 < MapConstants.MAP_COLS) neighbours.add(cell + 1);
+        return neighbours;
+    }
+}
@@ -9,13 +9,13 @@ package map;
 public class Cell {
     private final int row;
     private final int col;
-    private boolean isObstacle;
-    private boolean isVirtualWall;
     private boolean isExplored;
+    private final Map map;          // map holding the obstacle & virtual wall state, notified when the cell changes
 
-    public Cell(int row, int col) {
+    Cell(int row, int col, Map map) {
         this.row = row;
         this.col = col;
+        this.map = map;
     }
 
     public int getRow() {
@@ -26,30 +26,18 @@ public class Cell {
         return this.col;
     }
 
-    public void setIsObstacle(boolean val) {
-        this.isObstacle = val;
-    }
-
     public boolean getIsObstacle() {
-        return this.isObstacle;
-    }
-
-    public void setVirtualWall(boolean val) {
-        if (val) {
-            this.isVirtualWall = true;
-        } else {
-            if (row != 0 && row != MapConstants.MAP_ROWS - 1 && col != 0 && col != MapConstants.MAP_COLS - 1) {
-                this.isVirtualWall = false;
-            }
-        }
+        return map.isObstacleCell(row, col);
     }
 
     public boolean getIsVirtualWall() {
-        return this.isVirtualWall;
+        return map.isVirtualWallCell(row, col);
     }
 
     public void setIsExplored(boolean val) {
+        if (this.isExplored == val) return;
         this.isExplored = val;
+        map.cellChanged(this);
     }
 
     public boolean getIsExplored() {
@@ -0,0 +1,108 @@
+package map;
+
+/**
+ * Labels the connected components of the cells that the robot's center can visit (explored, not obstacles & not
+ * virtual walls) with a union-find. A cell that becomes visitable is merged with its neighbours straight away; a
+ * cell that stops being visitable can split a component, so the labels are then rebuilt on the next query. After a
+ * bulk change of the map, the visitable cells themselves are read back from the map on the next query.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class ComponentLabels {
+    private final int[] parent = new int[MapConstants.MAP_SIZE];
+    private final boolean[] traversable = new boolean[MapConstants.MAP_SIZE];
+    private final Map map;
+    private boolean dirty = false;          // a cell stopped being visitable since the last rebuild
+    private boolean resync = false;         // traversable must be read back from the map before the next rebuild
+    private int rebuilds = 0;
+
+    ComponentLabels(Map map) {
+        this.map = map;
+    }
+
+    /**
+     * Updates whether the robot's center can visit [row, col].
+     */
+    void setTraversable(int row, int col, boolean value) {
+        int i = row * MapConstants.MAP_COLS + col;
+        if (traversable[i] == value) return;
+        traversable[i] = value;
+
+        if (!value) {
+            dirty = true;
+            return;
+        }
+
+        parent[i] = i;
+        if (dirty) return;
+        if (row > 0) union(i, i - MapConstants.MAP_COLS);
+        if (row < MapConstants.MAP_ROWS - 1) union(i, i + MapConstants.MAP_COLS);
+        if (col > 0) union(i, i - 1);
+        if (col < MapConstants.MAP_COLS - 1) union(i, i + 1);
+    }
+
+    /**
+     * Marks every cell as possibly changed, e.g. after Map.setObstacleRows().
+     */
+    void invalidate() {
+        resync = true;
+        dirty = true;
+    }
+
+    /**
+     * Returns the label of the component containing [row, col] or -1 if the robot's center cannot visit it.
+     */
+    public int getLabel(int row, int col) {
+        if (dirty) rebuild();
+        int i = row * MapConstants.MAP_COLS + col;
+        return traversable[i] ? find(i) : -1;
+    }
+
+    /**
+     * Returns true if the robot's center can get from [row1, col1] to [row2, col2] through visitable cells.
+     */
+    public boolean isConnected(int row1, int col1, int row2, int col2) {
+        int a = getLabel(row1, col1);
+        return a != -1 && a == getLabel(row2, col2);
+    }
+
+    /**
+     * Returns the no. of times the labels have been rebuilt from scratch.
+     */
+    public int getRebuildCount() {
+        return rebuilds;
+    }
+
+    private void rebuild() {
+        if (resync) {
+            for (int i = 0; i < MapConstants.MAP_SIZE; i++) {
+                traversable[i] = map.isTraversable(i / MapConstants.MAP_COLS, i % MapConstants.MAP_COLS);
+            }
+            resync = false;
+        }
+        for (int i = 0; i < MapConstants.MAP_SIZE; i++) parent[i] = i;
+        dirty = false;
+        for (int i = 0; i < MapConstants.MAP_SIZE; i++) {
+            if (!traversable[i]) continue;
+            if (i % MapConstants.MAP_COLS < MapConstants.MAP_COLS - 1) union(i, i + 1);
+            if (i + MapConstants.MAP_COLS < MapConstants.MAP_SIZE) union(i, i + MapConstants.MAP_COLS);
+        }
+        rebuilds++;
+    }
+
+    private void union(int a, int b) {
+        if (!traversable[a] || !traversable[b]) return;
+        int rootA = find(a), rootB = find(b);
+        if (rootA < rootB) parent[rootB] = rootA;
+        else if (rootB < rootA) parent[rootA] = rootB;
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
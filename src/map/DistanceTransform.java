@@ -0,0 +1,113 @@
+package map;
+
+import java.util.ArrayDeque;
+
+// @formatter:off
+/**
+ * City-block distance from every cell to the nearest obstacle or to the outside of the arena, i.e. a cell on the
+ * border is at distance 1 & an obstacle is at distance 0. The robot's center needs a distance of at least 2.
+ *
+ * Computed with the usual two-pass transform (forward pass looking down & left, backward pass looking up & right)
+ * and then kept up to date incrementally: a new obstacle only lowers distances, so it is relaxed outwards with a
+ * BFS; a removed obstacle can raise distances anywhere, so the transform is recomputed on the next query.
+ *
+ * @author Suyash Lakhotia
+ */
+// @formatter:on
+
+public class DistanceTransform {
+    private final int[][] dist = new int[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
+    private final int[] obstacles = new int[MapConstants.MAP_ROWS];    // bit c is set if [row, c] is an obstacle
+    private final ArrayDeque<int[]> queue = new ArrayDeque<>();
+    private boolean stale = false;          // dist must be recomputed before the next query
+
+    public DistanceTransform() {
+        recompute();
+    }
+
+    /**
+     * Returns the distance from the cell to the nearest obstacle or to the outside of the arena.
+     */
+    public int getDistance(int row, int col) {
+        if (stale) recompute();
+        return dist[row][col];
+    }
+
+    /**
+     * Marks a cell as an obstacle and lowers the distances around it.
+     */
+    public void addObstacle(int row, int col) {
+        if (isObstacle(row, col)) return;
+        obstacles[row] |= 1 << col;
+        if (stale) return;
+        dist[row][col] = 0;
+
+        queue.add(new int[]{row, col});
+        while (!queue.isEmpty()) {
+            int[] cur = queue.poll();
+            int next = dist[cur[0]][cur[1]] + 1;
+            relax(cur[0] + 1, cur[1], next);
+            relax(cur[0] - 1, cur[1], next);
+            relax(cur[0], cur[1] + 1, next);
+            relax(cur[0], cur[1] - 1, next);
+        }
+    }
+
+    private void relax(int row, int col, int d) {
+        if (row < 0 || col < 0 || row >= MapConstants.MAP_ROWS || col >= MapConstants.MAP_COLS) return;
+        if (d < dist[row][col]) {
+            dist[row][col] = d;
+            queue.add(new int[]{row, col});
+        }
+    }
+
+    /**
+     * Clears an obstacle; the transform is recomputed on the next query.
+     */
+    public void removeObstacle(int row, int col) {
+        if (!isObstacle(row, col)) return;
+        obstacles[row] &= ~(1 << col);
+        stale = true;
+    }
+
+    /**
+     * Replaces all obstacles (bit c of rows[row] is set if [row, c] is an obstacle); the transform is recomputed on
+     * the next query.
+     */
+    public void setObstacles(int[] rows) {
+        System.arraycopy(rows, 0, obstacles, 0, MapConstants.MAP_ROWS);
+        stale = true;
+    }
+
+    private boolean isObstacle(int row, int col) {
+        return ((obstacles[row] >>> col) & 1) == 1;
+    }
+
+    /**
+     * Recomputes all distances with the two-pass transform.
+     */
+    public void recompute() {
+        int rows = MapConstants.MAP_ROWS, cols = MapConstants.MAP_COLS;
+        stale = false;
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (isObstacle(r, c)) {
+                    dist[r][c] = 0;
+                } else {
+                    int below = r > 0 ? dist[r - 1][c] : 0;
+                    int left = c > 0 ? dist[r][c - 1] : 0;
+                    dist[r][c] = Math.min(below, left) + 1;
+                }
+            }
+        }
+
+        for (int r = rows - 1; r >= 0; r--) {
+            for (int c = cols - 1; c >= 0; c--) {
+                int above = r < rows - 1 ? dist[r + 1][c] : 0;
+                int right = c < cols - 1 ? dist[r][c + 1] : 0;
+                dist[r][c] = Math.min(dist[r][c], Math.min(above, right) + 1);
+            }
+        }
+    }
+}
@@ -33,4 +33,6 @@ class GraphicsConstants {
 
     public static final int MAP_H = 600;
     public static final int MAP_X_OFFSET = 120;
+
+    public static final int REPAINT_INTERVAL = 33;      // min. delay between two repaints (ms), i.e. max. ~30 FPS
 }
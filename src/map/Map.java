@@ -1,10 +1,6 @@
 package map;
 
 import robot.Robot;
-import robot.RobotConstants;
-
-import javax.swing.*;
-import java.awt.*;
 
 /**
  * Represents the entire map grid for the arena.
@@ -12,9 +8,20 @@ import java.awt.*;
  * @author Suyash Lakhotia
  */
 
-public class Map extends JPanel {
+public class Map {
     private final Cell[][] grid;
     private final Robot bot;
+    private final DistanceTransform distanceTransform = new DistanceTransform();
+    private final ComponentLabels components = new ComponentLabels(this);
+    private final int[] obstacleRows = new int[MapConstants.MAP_ROWS];  // bit c is set if [row, c] is an obstacle
+    private final int[] wallRows = new int[MapConstants.MAP_ROWS];      // bit c is set if [row, c] is a virtual wall
+    private final byte[][] adjacentObstacles = new byte[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];  // 8-neighbours that are obstacles
+    private boolean countsStale = false;    // adjacentObstacles must be recounted before the next setObstacleCell()
+
+    private volatile MapSnapshot snapshot;          // latest state published for rendering
+    private volatile MapView view;                  // view notified of new snapshots, if any
+    private volatile long lastPublish;
+    private boolean dirty;                          // changed since the last published snapshot
 
     /**
      * Initialises a Map object with a grid of Cell objects.
@@ -25,14 +32,14 @@ public class Map extends JPanel {
         grid = new Cell[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
         for (int row = 0; row < grid.length; row++) {
             for (int col = 0; col < grid[0].length; col++) {
-                grid[row][col] = new Cell(row, col);
-
-                // Set the virtual walls of the arena
-                if (row == 0 || col == 0 || row == MapConstants.MAP_ROWS - 1 || col == MapConstants.MAP_COLS - 1) {
-                    grid[row][col].setVirtualWall(true);
-                }
+                grid[row][col] = new Cell(row, col, this);
             }
+
+            // Set the virtual walls of the arena
+            wallRows[row] = getBorderMask(row);
         }
+
+        publishSnapshot();
     }
 
     /**
@@ -45,14 +52,14 @@ public class Map extends JPanel {
     /**
      * Returns true if the row and column values are in the start zone.
      */
-    private boolean inStartZone(int row, int col) {
+    public static boolean inStartZone(int row, int col) {
         return row >= 0 && row <= 2 && col >= 0 && col <= 2;
     }
 
     /**
      * Returns true if the row and column values are in the goal zone.
      */
-    private boolean inGoalZone(int row, int col) {
+    public static boolean inGoalZone(int row, int col) {
         return (row <= MapConstants.GOAL_ROW + 1 && row >= MapConstants.GOAL_ROW - 1 && col <= MapConstants.GOAL_COL + 1 && col >= MapConstants.GOAL_COL - 1);
     }
 
@@ -67,14 +74,58 @@ public class Map extends JPanel {
      * Returns true if a cell is an obstacle.
      */
     public boolean isObstacleCell(int row, int col) {
-        return grid[row][col].getIsObstacle();
+        return ((obstacleRows[row] >>> col) & 1) == 1;
+    }
+
+    /**
+     * Returns the city-block distance from a cell to the nearest obstacle or to the outside of the arena.
+     */
+    public int getClearance(int row, int col) {
+        return distanceTransform.getDistance(row, col);
+    }
+
+    /**
+     * Returns the connected components of the cells the robot's center can visit.
+     */
+    public ComponentLabels getComponents() {
+        return components;
+    }
+
+    /**
+     * Called by a cell of the grid after it has changed.
+     */
+    void cellChanged(Cell cell) {
+        components.setTraversable(cell.getRow(), cell.getCol(), isTraversable(cell.getRow(), cell.getCol()));
+    }
+
+    /**
+     * Returns true if the robot's center can visit a cell (explored, not an obstacle & not a virtual wall).
+     */
+    boolean isTraversable(int row, int col) {
+        return grid[row][col].getIsExplored() && !isObstacleCell(row, col) && !isVirtualWallCell(row, col);
     }
 
     /**
      * Returns true if a cell is a virtual wall.
      */
     public boolean isVirtualWallCell(int row, int col) {
-        return grid[row][col].getIsVirtualWall();
+        return ((wallRows[row] >>> col) & 1) == 1;
+    }
+
+    /**
+     * Copies the state (CELL_UNEXPLORED, CELL_FREE or CELL_OBSTACLE) of every cell into states, indexed by
+     * row * MAP_COLS + col.
+     */
+    public void copyCellStates(byte[] states) {
+        int i = 0;
+        for (int row = 0; row < grid.length; row++) {
+            for (int col = 0; col < grid[0].length; col++) {
+                Cell cell = grid[row][col];
+                if (!cell.getIsExplored()) states[i++] = MapConstants.CELL_UNEXPLORED;
+                else if (cell.getIsObstacle()) states[i++] = MapConstants.CELL_OBSTACLE;
+                else states[i++] = MapConstants.CELL_FREE;
+            }
+        }
     }
 
     /**
@@ -104,127 +155,147 @@ public class Map extends JPanel {
     }
 
     /**
-     * Sets a cell as an obstacle and the surrounding cells as virtual walls or resets the cell and surrounding
-     * virtual walls.
+     * Sets a cell as an obstacle or resets it. The surrounding cells count their adjacent obstacles and are virtual
+     * walls while that count is above 0, so resetting an obstacle keeps the virtual walls that other obstacles need.
      */
     public void setObstacleCell(int row, int col, boolean obstacle) {
         if (obstacle && (inStartZone(row, col) || inGoalZone(row, col)))
             return;
+        if (isObstacleCell(row, col) == obstacle)
+            return;
 
-        grid[row][col].setIsObstacle(obstacle);
-
-        if (row >= 1) {
-            grid[row - 1][col].setVirtualWall(obstacle);            // bottom cell
+        if (countsStale) countAdjacentObstacles();
+        if (obstacle) {
+            obstacleRows[row] |= 1 << col;
+            distanceTransform.addObstacle(row, col);
+        } else {
+            obstacleRows[row] &= ~(1 << col);
+            distanceTransform.removeObstacle(row, col);
+        }
 
-            if (col < MapConstants.MAP_COLS - 1) {
-                grid[row - 1][col + 1].setVirtualWall(obstacle);    // bottom-right cell
+        int delta = obstacle ? 1 : -1;
+        for (int r = Math.max(0, row - 1); r <= Math.min(MapConstants.MAP_ROWS - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(MapConstants.MAP_COLS - 1, col + 1); c++) {
+                if (r == row && c == col) continue;
+                adjacentObstacles[r][c] += delta;
+                if (adjacentObstacles[r][c] > 0) wallRows[r] |= 1 << c;
+                else wallRows[r] &= ~(1 << c) | getBorderMask(r);
+                cellChanged(grid[r][c]);
             }
+        }
+        cellChanged(grid[row][col]);
+    }
 
-            if (col >= 1) {
-                grid[row - 1][col - 1].setVirtualWall(obstacle);    // bottom-left cell
-            }
+    /**
+     * Replaces the obstacles of the whole grid (bit c of rows[row] is set if [row, c] is an obstacle). Obstacles in
+     * the START & GOAL zones are ignored. The virtual walls are dilated from the bit-packed rows; the adjacent
+     * obstacle counts, connected components & distance transform are recomputed when next needed.
+     */
+    public void setObstacleRows(int[] rows) {
+        int allCols = (1 << MapConstants.MAP_COLS) - 1;
+        for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+            obstacleRows[row] = rows[row] & allCols & ~getZoneMask(row);
         }
 
-        if (row < MapConstants.MAP_ROWS - 1) {
-            grid[row + 1][col].setVirtualWall(obstacle);            // top cell
+        for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+            int below = row > 0 ? obstacleRows[row - 1] : 0;
+            int above = row < MapConstants.MAP_ROWS - 1 ? obstacleRows[row + 1] : 0;
+            int cur = obstacleRows[row];
 
-            if (col < MapConstants.MAP_COLS - 1) {
-                grid[row + 1][col + 1].setVirtualWall(obstacle);    // top-right cell
-            }
+            // A cell is a virtual wall if any of its 8 neighbours is an obstacle.
+            int vertical = below | above;
+            wallRows[row] = ((vertical | (vertical << 1) | (vertical >>> 1) | (cur << 1) | (cur >>> 1)) & allCols) | getBorderMask(row);
+        }
 
-            if (col >= 1) {
-                grid[row + 1][col - 1].setVirtualWall(obstacle);    // top-left cell
+        countsStale = true;
+        components.invalidate();
+        distanceTransform.setObstacles(obstacleRows);
+    }
+
+    /**
+     * Recounts the obstacles among the 8 neighbours of every cell from the bit-packed rows.
+     */
+    private void countAdjacentObstacles() {
+        for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+            int below = row > 0 ? obstacleRows[row - 1] : 0;
+            int above = row < MapConstants.MAP_ROWS - 1 ? obstacleRows[row + 1] : 0;
+            int cur = obstacleRows[row];
+            for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+                int window = 7 << col >>> 1;    // columns col - 1 to col + 1
+                adjacentObstacles[row][col] = (byte) (Integer.bitCount(below & window) + Integer.bitCount(above & window) + Integer.bitCount(cur & window & ~(1 << col)));
             }
         }
+        countsStale = false;
+    }
 
-        if (col >= 1) {
-            grid[row][col - 1].setVirtualWall(obstacle);            // left cell
-        }
+    /**
+     * Returns the bits of the cells of a row that are on the border of the arena (always virtual walls).
+     */
+    private static int getBorderMask(int row) {
+        if (row == 0 || row == MapConstants.MAP_ROWS - 1) return (1 << MapConstants.MAP_COLS) - 1;
+        return 1 | (1 << (MapConstants.MAP_COLS - 1));
+    }
 
-        if (col < MapConstants.MAP_COLS - 1) {
-            grid[row][col + 1].setVirtualWall(obstacle);            // right cell
-        }
+    /**
+     * Returns the bits of the cells of a row that are in the START or GOAL zone.
+     */
+    private static int getZoneMask(int row) {
+        int mask = 0;
+        if (inStartZone(row, 0)) mask |= 0b111;
+        if (inGoalZone(row, MapConstants.GOAL_COL)) mask |= 0b111 << (MapConstants.GOAL_COL - 1);
+        return mask;
     }
 
     /**
      * Returns true if the given cell is out of bounds or an obstacle.
      */
     public boolean getIsObstacleOrWall(int row, int col) {
-        return !checkValidCoordinates(row, col) || getCell(row, col).getIsObstacle();
+        return !checkValidCoordinates(row, col) || isObstacleCell(row, col);
     }
 
     /**
-     * Overrides JComponent's paintComponent() method. It creates a two-dimensional array of _DisplayCell objects
-     * to store the current map state. Then, it paints square cells for the grid with the appropriate colors as
-     * well as the robot on-screen.
+     * Publishes a snapshot of the map for rendering, at most once per REPAINT_INTERVAL. Should be called by the
+     * thread that mutates the map after every change. A change that comes sooner marks the map dirty and is published
+     * by the next call once the interval has passed, or by flush().
      */
-    public void paintComponent(Graphics g) {
-        // Create a two-dimensional array of _DisplayCell objects for rendering.
-        _DisplayCell[][] _mapCells = new _DisplayCell[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-        for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-            for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-                _mapCells[mapRow][mapCol] = new _DisplayCell(mapCol * GraphicsConstants.CELL_SIZE, mapRow * GraphicsConstants.CELL_SIZE, GraphicsConstants.CELL_SIZE);
-            }
+    public void repaint() {
+        if (System.currentTimeMillis() - lastPublish >= GraphicsConstants.REPAINT_INTERVAL) {
+            publishSnapshot();
+        } else {
+            dirty = true;
         }
+    }
 
-        // Paint the cells with the appropriate colors.
-        for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-            for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-                Color cellColor;
-
-                if (inStartZone(mapRow, mapCol))
-                    cellColor = GraphicsConstants.C_START;
-                else if (inGoalZone(mapRow, mapCol))
-                    cellColor = GraphicsConstants.C_GOAL;
-                else {
-                    if (!grid[mapRow][mapCol].getIsExplored())
-                        cellColor = GraphicsConstants.C_UNEXPLORED;
-                    else if (grid[mapRow][mapCol].getIsObstacle())
-                        cellColor = GraphicsConstants.C_OBSTACLE;
-                    else
-                        cellColor = GraphicsConstants.C_FREE;
-                }
-
-                g.setColor(cellColor);
-                g.fillRect(_mapCells[mapRow][mapCol].cellX + GraphicsConstants.MAP_X_OFFSET, _mapCells[mapRow][mapCol].cellY, _mapCells[mapRow][mapCol].cellSize, _mapCells[mapRow][mapCol].cellSize);
-
-            }
-        }
+    /**
+     * Publishes the change deferred by repaint(), if any. Called by the thread that mutates the map before it blocks
+     * (e.g. waiting for a sensor frame), so that the view does not show a stale state in the meantime.
+     */
+    public void flush() {
+        if (dirty) publishSnapshot();
+    }
 
-        // Paint the robot on-screen.
-        g.setColor(GraphicsConstants.C_ROBOT);
-        int r = bot.getRobotPosRow();
-        int c = bot.getRobotPosCol();
-        g.fillOval((c - 1) * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_X_OFFSET + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - (r * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_Y_OFFSET), GraphicsConstants.ROBOT_W, GraphicsConstants.ROBOT_H);
-
-        // Paint the robot's direction indicator on-screen.
-        g.setColor(GraphicsConstants.C_ROBOT_DIR);
-        RobotConstants.DIRECTION d = bot.getRobotCurDir();
-        switch (d) {
-            case NORTH:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE - 15, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
-            case EAST:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE + 35 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
-            case SOUTH:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 35, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
-            case WEST:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE - 15 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
-        }
+    /**
+     * Copies the cell states and robot pose into a new MapSnapshot, publishes it and notifies the attached view.
+     */
+    public void publishSnapshot() {
+        dirty = false;
+        byte[] states = new byte[MapConstants.MAP_SIZE];
+        copyCellStates(states);
+        snapshot = new MapSnapshot(states, bot.getRobotPosRow(), bot.getRobotPosCol(), bot.getRobotCurDir());
+        lastPublish = System.currentTimeMillis();
+
+        MapView v = view;
+        if (v != null) v.repaint();
     }
 
-    private class _DisplayCell {
-        public final int cellX;
-        public final int cellY;
-        public final int cellSize;
+    /**
+     * Returns the latest published snapshot.
+     */
+    public MapSnapshot getSnapshot() {
+        return snapshot;
+    }
 
-        public _DisplayCell(int borderX, int borderY, int borderSize) {
-            this.cellX = borderX + GraphicsConstants.CELL_LINE_WEIGHT;
-            this.cellY = GraphicsConstants.MAP_H - (borderY - GraphicsConstants.CELL_LINE_WEIGHT);
-            this.cellSize = borderSize - (GraphicsConstants.CELL_LINE_WEIGHT * 2);
-        }
+    void setView(MapView view) {
+        this.view = view;
     }
 }
@@ -12,4 +12,8 @@ public class MapConstants {
     public static final int MAP_COLS = 15;      // total num of cols
     public static final int GOAL_ROW = 18;      // row no. of goal cell
     public static final int GOAL_COL = 13;      // col no. of goal cell
+
+    public static final byte CELL_UNEXPLORED = 0;   // cell state: unexplored
+    public static final byte CELL_FREE = 1;         // cell state: explored & free
+    public static final byte CELL_OBSTACLE = 2;     // cell state: explored & obstacle
 }
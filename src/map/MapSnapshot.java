@@ -0,0 +1,43 @@
+package map;
+
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Immutable copy of the cell states and robot pose of a Map, published by the simulation thread and read by the
+ * renderer.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public final class MapSnapshot {
+    private final byte[] cellStates;
+    private final int robotRow;
+    private final int robotCol;
+    private final DIRECTION robotDir;
+
+    MapSnapshot(byte[] cellStates, int robotRow, int robotCol, DIRECTION robotDir) {
+        this.cellStates = cellStates;
+        this.robotRow = robotRow;
+        this.robotCol = robotCol;
+        this.robotDir = robotDir;
+    }
+
+    /**
+     * Returns the state (CELL_UNEXPLORED, CELL_FREE or CELL_OBSTACLE) of a cell.
+     */
+    public byte getCellState(int row, int col) {
+        return cellStates[row * MapConstants.MAP_COLS + col];
+    }
+
+    public int getRobotRow() {
+        return robotRow;
+    }
+
+    public int getRobotCol() {
+        return robotCol;
+    }
+
+    public DIRECTION getRobotDir() {
+        return robotDir;
+    }
+}
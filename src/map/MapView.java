@@ -0,0 +1,108 @@
+package map;
+
+import robot.RobotConstants;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Renders the latest MapSnapshot published by a Map. The view never reads the Map itself, so the simulation
+ * thread can keep mutating the map while the EDT paints.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class MapView extends JPanel {
+    private final Map map;
+
+    private BufferedImage gridImage;                // cached rendering of the grid cells
+    private Color[][] paintedColors;                // color of each cell in gridImage
+
+    /**
+     * Initialises a MapView and attaches it to the given map.
+     */
+    public MapView(Map map) {
+        this.map = map;
+        map.setView(this);
+    }
+
+    /**
+     * Returns the color a cell should be painted with.
+     */
+    private static Color getCellColor(MapSnapshot snapshot, int row, int col) {
+        if (Map.inStartZone(row, col)) return GraphicsConstants.C_START;
+        if (Map.inGoalZone(row, col)) return GraphicsConstants.C_GOAL;
+
+        switch (snapshot.getCellState(row, col)) {
+            case MapConstants.CELL_FREE:
+                return GraphicsConstants.C_FREE;
+            case MapConstants.CELL_OBSTACLE:
+                return GraphicsConstants.C_OBSTACLE;
+            default:
+                return GraphicsConstants.C_UNEXPLORED;
+        }
+    }
+
+    /**
+     * Overrides JComponent's paintComponent() method. The grid cells of the latest snapshot are rendered into a
+     * cached image in which only the cells whose color changed since the last frame are redrawn. The image and the
+     * robot are then painted on-screen.
+     */
+    public void paintComponent(Graphics g) {
+        MapSnapshot snapshot = map.getSnapshot();
+
+        if (gridImage == null) {
+            gridImage = new BufferedImage(GraphicsConstants.MAP_X_OFFSET + MapConstants.MAP_COLS * GraphicsConstants.CELL_SIZE, GraphicsConstants.MAP_H + GraphicsConstants.CELL_SIZE, BufferedImage.TYPE_INT_RGB);
+            paintedColors = new Color[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
+
+            Graphics bg = gridImage.getGraphics();
+            bg.setColor(getBackground());
+            bg.fillRect(0, 0, gridImage.getWidth(), gridImage.getHeight());
+            bg.dispose();
+        }
+
+        // Paint the cells whose color has changed.
+        Graphics ig = gridImage.getGraphics();
+        int cellSize = GraphicsConstants.CELL_SIZE - (GraphicsConstants.CELL_LINE_WEIGHT * 2);
+        for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
+            for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
+                Color cellColor = getCellColor(snapshot, mapRow, mapCol);
+                if (paintedColors[mapRow][mapCol] != cellColor) {
+                    int cellX = mapCol * GraphicsConstants.CELL_SIZE + GraphicsConstants.CELL_LINE_WEIGHT + GraphicsConstants.MAP_X_OFFSET;
+                    int cellY = GraphicsConstants.MAP_H - (mapRow * GraphicsConstants.CELL_SIZE - GraphicsConstants.CELL_LINE_WEIGHT);
+                    ig.setColor(cellColor);
+                    ig.fillRect(cellX, cellY, cellSize, cellSize);
+                    paintedColors[mapRow][mapCol] = cellColor;
+                }
+            }
+        }
+        ig.dispose();
+
+        g.drawImage(gridImage, 0, 0, null);
+
+        // Paint the robot on-screen.
+        g.setColor(GraphicsConstants.C_ROBOT);
+        int r = snapshot.getRobotRow();
+        int c = snapshot.getRobotCol();
+        g.fillOval((c - 1) * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_X_OFFSET + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - (r * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_Y_OFFSET), GraphicsConstants.ROBOT_W, GraphicsConstants.ROBOT_H);
+
+        // Paint the robot's direction indicator on-screen.
+        g.setColor(GraphicsConstants.C_ROBOT_DIR);
+        RobotConstants.DIRECTION d = snapshot.getRobotDir();
+        switch (d) {
+            case NORTH:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE - 15, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+            case EAST:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE + 35 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+            case SOUTH:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 35, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+            case WEST:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE - 15 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+        }
+    }
+}
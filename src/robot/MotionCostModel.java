@@ -0,0 +1,151 @@
+package robot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+// @formatter:off
+/**
+ * Cost of the robot's motions, used by the planner in place of fixed MOVE_COST & TURN_COST values.
+ *
+ * A straight run of k cells costs f(k) = runStartCost + moveCost * k, so longer runs are cheaper per cell (the robot
+ * accelerates once per run), and every 90 degree turn costs turnCost. The default model (runStartCost = 0,
+ * moveCost = MOVE_COST, turnCost = TURN_COST) reproduces the original costs.
+ *
+ * Fitted models are scaled so that a single one-cell move costs MOVE_COST, which keeps path costs in the same range
+ * as INFINITE_COST. They can be saved to & loaded from a file with one "key=value" line per parameter.
+ *
+ * @author Suyash Lakhotia
+ */
+// @formatter:on
+
+public class MotionCostModel {
+    public static final String DEFAULT_FILE = "motion_model.txt";
+    public static final MotionCostModel DEFAULT = new MotionCostModel(0, RobotConstants.MOVE_COST, RobotConstants.TURN_COST);
+
+    private final double runStartCost;
+    private final double moveCost;
+    private final double turnCost;
+
+    public MotionCostModel(double runStartCost, double moveCost, double turnCost) {
+        this.runStartCost = runStartCost;
+        this.moveCost = moveCost;
+        this.turnCost = turnCost;
+    }
+
+    /**
+     * Returns the fixed cost of starting a straight run.
+     */
+    public double getRunStartCost() {
+        return runStartCost;
+    }
+
+    /**
+     * Returns the cost of every cell in a straight run.
+     */
+    public double getMoveCost() {
+        return moveCost;
+    }
+
+    /**
+     * Returns the cost of one 90 degree turn.
+     */
+    public double getTurnCost() {
+        return turnCost;
+    }
+
+    /**
+     * Returns f(k), the cost of a straight run of k cells.
+     */
+    public double getRunCost(int k) {
+        return k == 0 ? 0 : runStartCost + moveCost * k;
+    }
+
+    /**
+     * Fits a model to measured durations: runLengths[i] cells took runTimes[i] (least squares fit of f(k)), and a turn
+     * took turnTime on average. The result is scaled so that f(1) = MOVE_COST. Returns null if there are no forward
+     * samples.
+     */
+    public static MotionCostModel fit(int[] runLengths, double[] runTimes, double turnTime) {
+        int n = runLengths.length;
+        if (n == 0) return null;
+
+        double meanK = 0, meanT = 0;
+        for (int i = 0; i < n; i++) {
+            meanK += runLengths[i];
+            meanT += runTimes[i];
+        }
+        meanK /= n;
+        meanT /= n;
+
+        double cov = 0, var = 0;
+        for (int i = 0; i < n; i++) {
+            cov += (runLengths[i] - meanK) * (runTimes[i] - meanT);
+            var += (runLengths[i] - meanK) * (runLengths[i] - meanK);
+        }
+
+        // With only one run length, the fixed & per-cell parts cannot be told apart.
+        double b = var > 0 ? cov / var : meanT / meanK;
+        double a = var > 0 ? meanT - b * meanK : 0;
+        if (b <= 0) {
+            b = meanT / meanK;
+            a = 0;
+        }
+        a = Math.max(0, a);
+
+        double scale = RobotConstants.MOVE_COST / (a + b);
+        return new MotionCostModel(a * scale, b * scale, turnTime * scale);
+    }
+
+    /**
+     * Saves the model to a file.
+     */
+    public void save(String filename) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            writer.write("runStartCost=" + runStartCost + "\n");
+            writer.write("moveCost=" + moveCost + "\n");
+            writer.write("turnCost=" + turnCost + "\n");
+        } catch (IOException e) {
+            System.out.println("MotionCostModel.save() --> IOException");
+        }
+    }
+
+    /**
+     * Loads a model saved by save(). Returns null if the file does not exist or cannot be parsed.
+     */
+    public static MotionCostModel load(String filename) {
+        if (!new File(filename).exists()) return null;
+
+        double a = 0, b = RobotConstants.MOVE_COST, t = RobotConstants.TURN_COST;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] kv = line.trim().split("=");
+                if (kv.length != 2) continue;
+                switch (kv[0]) {
+                    case "runStartCost":
+                        a = Double.parseDouble(kv[1]);
+                        break;
+                    case "moveCost":
+                        b = Double.parseDouble(kv[1]);
+                        break;
+                    case "turnCost":
+                        t = Double.parseDouble(kv[1]);
+                        break;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("MotionCostModel.load() --> " + e.getClass().getSimpleName());
+            return null;
+        }
+
+        return new MotionCostModel(a, b, t);
+    }
+
+    public String toString() {
+        return String.format("f(k) = %.2f + %.2f * k, turn = %.2f", runStartCost, moveCost, turnCost);
+    }
+}
@@ -4,8 +4,10 @@ import map.Map;
 import map.MapConstants;
 import robot.RobotConstants.DIRECTION;
 import robot.RobotConstants.MOVEMENT;
+import utils.AndroidPublisher;
 import utils.CommMgr;
-import utils.MapDescriptor;
+import utils.FlightEvents;
+import utils.RunJournal;
 
 import java.util.concurrent.TimeUnit;
 
@@ -154,8 +156,12 @@ public class Robot {
                 break;
         }
 
-        if (realBot) sendMovement(m, sendMoveToAndroid);
-        else System.out.println("Move: " + MOVEMENT.print(m));
+        if (realBot) {
+            sendMovement(m, sendMoveToAndroid);
+            RunJournal.getRunJournal().recordMove(m, 1, posRow, posCol, robotDir);
+        } else {
+            System.out.println("Move: " + MOVEMENT.print(m));
+        }
 
         updateTouchedGoal();
     }
@@ -189,14 +195,15 @@ public class Robot {
                     posCol += count;
                     break;
                 case SOUTH:
-                    posRow += count;
+                    posRow -= count;
                     break;
                 case WEST:
-                    posCol += count;
+                    posCol -= count;
                     break;
             }
+            RunJournal.getRunJournal().recordMove(MOVEMENT.FORWARD, count, posRow, posCol, robotDir);
 
-            comm.sendMsg(this.getRobotPosRow() + "," + this.getRobotPosCol() + "," + DIRECTION.print(this.getRobotCurDir()), CommMgr.BOT_POS);
+            AndroidPublisher.getAndroidPublisher().publishPose(this.getRobotPosRow() + "," + this.getRobotPosCol() + "," + DIRECTION.print(this.getRobotCurDir()));
         }
     }
 
@@ -207,7 +214,7 @@ public class Robot {
         CommMgr comm = CommMgr.getCommMgr();
         comm.sendMsg(MOVEMENT.print(m) + "", CommMgr.INSTRUCTIONS);
         if (m != MOVEMENT.CALIBRATE && sendMoveToAndroid) {
-            comm.sendMsg(this.getRobotPosRow() + "," + this.getRobotPosCol() + "," + DIRECTION.print(this.getRobotCurDir()), CommMgr.BOT_POS);
+            AndroidPublisher.getAndroidPublisher().publishPose(this.getRobotPosRow() + "," + this.getRobotPosCol() + "," + DIRECTION.print(this.getRobotCurDir()));
         }
     }
 
@@ -271,6 +278,14 @@ public class Robot {
     public int[] sense(Map explorationMap, Map realMap) {
         int[] result = new int[6];
 
+        FlightEvents.Sensing sensingEvent = new FlightEvents.Sensing();
+        byte[] statesBefore = null;
+        if (sensingEvent.isEnabled()) {
+            statesBefore = new byte[MapConstants.MAP_SIZE];
+            explorationMap.copyCellStates(statesBefore);
+        }
+        sensingEvent.begin();
+
         if (!realBot) {
             result[0] = SRFrontLeft.sense(explorationMap, realMap);
             result[1] = SRFrontCenter.sense(explorationMap, realMap);
@@ -280,6 +295,7 @@ public class Robot {
             result[5] = LRLeft.sense(explorationMap, realMap);
         } else {
             CommMgr comm = CommMgr.getCommMgr();
+            explorationMap.flush();
             String msg = comm.recvMsg();
             String[] msgArr = msg.split(";");
 
@@ -292,15 +308,29 @@ public class Robot {
                 result[5] = Integer.parseInt(msgArr[6].split("_")[1]);
             }
 
+            RunJournal journal = RunJournal.getRunJournal();
+            journal.recordSensorValues(result);
+
             SRFrontLeft.senseReal(explorationMap, result[0]);
             SRFrontCenter.senseReal(explorationMap, result[1]);
             SRFrontRight.senseReal(explorationMap, result[2]);
             SRLeft.senseReal(explorationMap, result[3]);
             SRRight.senseReal(explorationMap, result[4]);
             LRLeft.senseReal(explorationMap, result[5]);
+            journal.recordMapDelta(explorationMap);
 
-            String[] mapStrings = MapDescriptor.generateMapDescriptor(explorationMap);
-            comm.sendMsg(mapStrings[0] + " " + mapStrings[1], CommMgr.MAP_STRINGS);
+            AndroidPublisher.getAndroidPublisher().publishMap(explorationMap);
+        }
+
+        sensingEvent.end();
+        if (statesBefore != null && sensingEvent.shouldCommit()) {
+            byte[] statesAfter = new byte[MapConstants.MAP_SIZE];
+            explorationMap.copyCellStates(statesAfter);
+            for (int i = 0; i < MapConstants.MAP_SIZE; i++) {
+                if (statesBefore[i] != statesAfter[i]) sensingEvent.cellsUpdated++;
+            }
+            sensingEvent.realBot = realBot;
+            sensingEvent.commit();
         }
 
         return result;
@@ -13,6 +13,7 @@ public class RobotConstants {
     public static final int START_COL = 1;                          // col no. of start cell
     public static final int MOVE_COST = 10;                         // cost of FORWARD, BACKWARD movement
     public static final int TURN_COST = 20;                         // cost of RIGHT, LEFT movement
+    public static final int CLEARANCE_TARGET = 3;                   // obstacle distance of the robot's center above which no clearance cost applies
     public static final int SPEED = 100;                            // delay between movements (ms)
     public static final DIRECTION START_DIR = DIRECTION.NORTH;      // start direction
     public static final int SENSOR_SHORT_RANGE_L = 1;               // range of short range sensor (cells)
@@ -69,5 +70,22 @@ public class RobotConstants {
                     return 'E';
             }
         }
+
+        public static MOVEMENT parse(char c) {
+            switch (c) {
+                case 'F':
+                    return FORWARD;
+                case 'B':
+                    return BACKWARD;
+                case 'R':
+                    return RIGHT;
+                case 'L':
+                    return LEFT;
+                case 'C':
+                    return CALIBRATE;
+                default:
+                    return ERROR;
+            }
+        }
     }
 }
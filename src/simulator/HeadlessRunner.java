@@ -0,0 +1,76 @@
+package simulator;
+
+import map.Map;
+import map.MapConstants;
+import utils.Metrics;
+
+import java.io.IOException;
+
+import static utils.MapDescriptor.loadMapFromDisk;
+
+/**
+ * Runs the simulator from the command line without creating any AWT components. Takes the same options as
+ * Simulator (see RunOptions); the sim & emulator transports need --map.
+ *
+ * e.g. HeadlessRunner --transport sim --map SampleArena1 --speed 0 --mode coverage --coverage 80
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class HeadlessRunner {
+    public static void main(String[] args) throws IOException {
+        RunOptions opts;
+        try {
+            opts = RunOptions.parse(args);
+            if (opts.getTransport() != RunOptions.TRANSPORT.REAL && opts.getMapName() == null) {
+                throw new IllegalArgumentException("--map is required for the " + opts.getTransport().toString().toLowerCase() + " transport");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(RunOptions.USAGE);
+            return;
+        }
+
+        Simulator.init(opts);
+        Map exploredMap = Simulator.getExploredMap();
+
+        long start = System.currentTimeMillis();
+        switch (opts.getMode()) {
+            case EXPLORE:
+                Simulator.runExploration();
+                if (opts.isRealRun()) Simulator.runFastestPath();
+                break;
+            case TIME:
+            case COVERAGE:
+                // Limited runs stop after the exploration, like the Time-Limited & Coverage-Limited buttons.
+                Simulator.runExploration();
+                break;
+            case FASTEST:
+                // Simulated runs plan on the full arena instead of an explored map.
+                if (!opts.isRealRun()) {
+                    loadMapFromDisk(exploredMap, opts.getMapName());
+                    exploredMap.setAllExplored();
+                }
+                Simulator.runFastestPath();
+                break;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        System.out.printf("%s run finished in %.2f s, %.2f%% explored, robot at (%d, %d).%n", opts.getMode().toString().toLowerCase(), elapsed / 1000.0, countExplored(exploredMap) * 100.0 / MapConstants.MAP_SIZE, Simulator.getBot().getRobotPosRow(), Simulator.getBot().getRobotPosCol());
+
+        System.out.println(Metrics.getMetrics().snapshot());
+
+        Simulator.shutdown();
+        System.exit(0);
+    }
+
+    private static int countExplored(Map map) {
+        int count = 0;
+        for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
+            for (int c = 0; c < MapConstants.MAP_COLS; c++) {
+                if (map.getCell(r, c).getIsExplored()) count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+package simulator;
+
+import algorithms.ExplorationAlgo;
+import map.Map;
+import map.MapConstants;
+import robot.Robot;
+import robot.RobotConstants;
+import robot.RobotConstants.MOVEMENT;
+import utils.CommMgr;
+import utils.MapDescriptor;
+import utils.RunJournal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Replays a RunJournal through the real-run code path (ExplorationAlgo, Robot.sense() & Sensor.senseReal()) at
+ * maximum speed. The recorded messages are served by an RPiEmulator in script mode, so the replayed run receives
+ * exactly the same messages at exactly the same points as the recorded one. The instructions sent by the replayed
+ * run are compared with the recorded movements.
+ *
+ * Usage: JournalReplayer [journal] [coverageLimit (% of maze)] [timeLimit (s)]
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class JournalReplayer {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: JournalReplayer [journal] [coverageLimit] [timeLimit]");
+            return;
+        }
+        int coverageLimit = args.length > 1 ? (int) (Integer.parseInt(args[1]) * MapConstants.MAP_SIZE / 100.0) : 300;
+        int timeLimit = args.length > 2 ? Integer.parseInt(args[2]) : 3600;
+
+        ArrayList<RunJournal.Entry> entries = RunJournal.read(args[0]);
+        ArrayList<String> msgs = new ArrayList<>();
+        ArrayList<Integer> sendsBefore = new ArrayList<>();
+        StringBuilder recordedMoves = new StringBuilder();
+        int frames = 0;
+        for (RunJournal.Entry e : entries) {
+            if (e.type == RunJournal.RECV) {
+                msgs.add(e.text);
+                sendsBefore.add(e.values[0]);
+                if (e.text.startsWith(CommMgr.SENSOR_DATA)) frames++;
+            } else if (e.type == RunJournal.MOVE) {
+                int count = e.values[1];
+                recordedMoves.append(count > 1 ? Character.forDigit(count % 10, 10) : MOVEMENT.print(MOVEMENT.values()[e.values[0]]));
+            } else if (e.type == RunJournal.CALIBRATION) {
+                recordedMoves.append(MOVEMENT.print(MOVEMENT.CALIBRATE));
+            }
+        }
+        System.out.println("Loaded " + entries.size() + " records (" + msgs.size() + " messages, " + frames + " sensor frames).");
+
+        Robot bot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, true);
+        RPiEmulator emulator = new RPiEmulator(new Map(bot));
+        emulator.setScript(msgs, sendsBefore);
+        int port = emulator.start(0);
+
+        CommMgr comm = CommMgr.getCommMgr();
+        comm.openConnection("localhost", port);
+
+        Map exploredMap = new Map(bot);
+        exploredMap.setAllUnexplored();
+
+        long start = System.nanoTime();
+        try {
+            comm.sendMsg(null, CommMgr.BOT_START);
+            new ExplorationAlgo(exploredMap, null, bot, coverageLimit, timeLimit).runExploration();
+        } catch (RuntimeException e) {
+            System.out.println("Replay stopped: " + e.toString());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        String replayedMoves = emulator.getInstructionLog();
+        int divergence = 0;
+        while (divergence < replayedMoves.length() && divergence < recordedMoves.length() && replayedMoves.charAt(divergence) == recordedMoves.charAt(divergence)) {
+            divergence++;
+        }
+
+        System.out.println("\nReplay finished in " + String.format("%.1f", elapsed / 1e6) + " ms.");
+        System.out.println("Recorded: " + recordedMoves);
+        System.out.println("Replayed: " + replayedMoves);
+        if (divergence < Math.min(replayedMoves.length(), recordedMoves.length())) {
+            System.out.println("Replay diverged at instruction " + divergence + "!");
+        } else {
+            System.out.println("Replayed instructions match the recording.");
+        }
+        MapDescriptor.generateMapDescriptor(exploredMap);
+
+        emulator.stop();
+    }
+}
@@ -0,0 +1,70 @@
+package simulator;
+
+import algorithms.ExplorationAlgo;
+import map.Map;
+import map.MapConstants;
+import robot.Robot;
+import robot.RobotConstants;
+import utils.CommMgr;
+
+import java.io.IOException;
+
+import static utils.MapDescriptor.loadMapFromDisk;
+
+/**
+ * Runs a pipelined exploration against an RPiEmulator that reports phantom obstacles in frames sent ahead, which
+ * forces the pipeline to mispredict. Checks that every misprediction was backed up from and that the explored map
+ * still matches the arena.
+ *
+ * Usage: PipelineCheck [mapName] [pipelineWindow] [phantomRate] [seed]
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class PipelineCheck {
+    public static void main(String[] args) throws IOException {
+        String filename = args.length > 0 ? args[0] : "SampleArena1";
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        double phantomRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.5;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+        RPiEmulator emulator = new RPiEmulator(filename);
+        emulator.setLatency(2);
+        emulator.setPhantomRate(phantomRate);
+        emulator.setSeed(seed);
+        CommMgr.getCommMgr().openConnection("localhost", emulator.start(0));
+
+        Robot bot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, true);
+        Map exploredMap = new Map(bot);
+        exploredMap.setAllUnexplored();
+
+        ExplorationAlgo exploration = new ExplorationAlgo(exploredMap, null, bot, MapConstants.MAP_SIZE, 3600);
+        exploration.setPipelineWindow(window);
+        CommMgr.getCommMgr().sendMsg(null, CommMgr.BOT_START);
+        exploration.runExploration();
+
+        CommMgr.getCommMgr().closeConnection();
+        emulator.stop();
+
+        Map arena = new Map(new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, false));
+        arena.setAllUnexplored();
+        loadMapFromDisk(arena, filename);
+
+        int wrong = 0;
+        for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
+            for (int c = 0; c < MapConstants.MAP_COLS; c++) {
+                if (exploredMap.getCell(r, c).getIsExplored() && exploredMap.isObstacleCell(r, c) != arena.isObstacleCell(r, c)) wrong++;
+            }
+        }
+
+        System.out.println("Phantom obstacles: " + emulator.getPhantomCount() + ", pipeline mispredictions: " + exploration.getPipelineMispredicts() + ", wrong cells: " + wrong);
+        if (emulator.getPhantomCount() == 0 || exploration.getPipelineMispredicts() == 0) {
+            System.out.println("No misprediction was forced!");
+        } else if (wrong > 0) {
+            System.out.println("Explored map does not match the arena!");
+        } else {
+            System.out.println("OK");
+        }
+        System.exit(0);
+    }
+}
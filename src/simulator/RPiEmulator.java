@@ -0,0 +1,478 @@
+package simulator;
+
+import map.Map;
+import map.MapConstants;
+import robot.Robot;
+import robot.RobotConstants;
+import robot.RobotConstants.MOVEMENT;
+import utils.CommMgr;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static utils.MapDescriptor.loadMapFromDisk;
+
+/**
+ * Loopback stand-in for the RasPi, Arduino & Android. Accepts INSTR messages, moves a simulated robot on a loaded
+ * arena and answers with SDATA frames generated from the Sensor model. MAP & BOT_POS messages are accepted and
+ * counted. Latency, jitter & sensor noise can be configured to approximate the real link; phantom obstacles in
+ * frames sent ahead of queued INSTRs force pipelined runs to mispredict (see PipelineCheck).
+ *
+ * In script mode, no frames are generated; instead, recorded messages are sent once the PC has sent the same number
+ * of INSTR/BOT_START messages as in the recorded run (see JournalReplayer).
+ *
+ * Usage: RPiEmulator [mapName] [port] [latencyMs] [jitterMs] [noise]
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class RPiEmulator {
+    public static final int DEFAULT_PORT = 8008;
+    public static final int CALIBRATION_INSTRUCTIONS = 7;     // no. of INSTRs sent by the PC before EX_START
+
+    private static final int READ_AHEAD_LIMIT = 1 << 16;    // max. no. of chars peeked at for queued INSTRs
+    private static final String[] SENSOR_IDS = {"SRFL", "SRFC", "SRFR", "SRL", "SRR", "LRL"};
+
+    private final Map realMap;
+    private final Map sensedMap;
+    private final Robot bot;
+
+    private int latency = 0;                // base delay before each reply (ms)
+    private int jitter = 0;                 // max. additional random delay before each reply (ms)
+    private double noise = 0;               // probability of a sensor reading being replaced by a random value
+    private double phantomRate = 0;         // probability of a frame sent ahead of queued INSTRs showing a phantom obstacle
+    private boolean autoStart = true;       // send EX_START once the calibration handshake is done
+    private long autoFastestPath = 0;       // send FP_START after the link has been idle for this long (ms)
+    private Random random = new Random();
+
+    private ServerSocket server;
+    private Socket conn;
+    private BufferedWriter writer;
+    private BufferedReader reader;
+    private Thread worker;
+    private volatile boolean running;
+
+    private int instrCount;
+    private boolean exStarted;
+    private boolean fpStarted;
+    private volatile long lastActivity;
+    private long startTime;
+    private long bytesIn;
+    private long bytesOut;
+    private int framesSent;
+    private int robotMsgCount;
+    private int phantomCount;
+    private final boolean[] phantomCells = new boolean[MapConstants.MAP_SIZE];
+    private final StringBuilder instructionLog = new StringBuilder();
+
+    private List<String> script;
+    private List<Integer> scriptSends;
+    private int scriptPtr;
+    private final HashMap<String, Integer> msgCounts = new HashMap<>();
+
+    public RPiEmulator(Map realMap) {
+        this.bot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, false);
+        this.bot.setSpeed(0);
+        this.realMap = realMap;
+        this.sensedMap = new Map(bot);
+        this.sensedMap.setAllUnexplored();
+    }
+
+    /**
+     * Creates an emulator for the arena stored in maps/filename.txt.
+     */
+    public RPiEmulator(String filename) {
+        this(loadArena(filename));
+    }
+
+    private static Map loadArena(String filename) {
+        Map map = new Map(new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, false));
+        map.setAllUnexplored();
+        loadMapFromDisk(map, filename);
+        return map;
+    }
+
+    public void setLatency(int latency) {
+        this.latency = latency;
+    }
+
+    public void setJitter(int jitter) {
+        this.jitter = jitter;
+    }
+
+    public void setNoise(double noise) {
+        this.noise = noise;
+    }
+
+    /**
+     * Makes the front center sensor report an obstacle right in front of the robot, with the given probability, in
+     * frames sent while further instructions are already queued (i.e. pipelined moves). Each cell is reported at most
+     * once, so the next frame that sees it shows the truth.
+     */
+    public void setPhantomRate(double phantomRate) {
+        this.phantomRate = phantomRate;
+    }
+
+    public int getPhantomCount() {
+        return phantomCount;
+    }
+
+    public void setSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public void setAutoStart(boolean autoStart) {
+        this.autoStart = autoStart;
+    }
+
+    public void setAutoFastestPath(long idleMillis) {
+        this.autoFastestPath = idleMillis;
+    }
+
+    /**
+     * Switches to script mode: msgs.get(i) is sent once sendsBefore.get(i) INSTR/BOT_START messages were received.
+     */
+    public void setScript(List<String> msgs, List<Integer> sendsBefore) {
+        this.script = msgs;
+        this.scriptSends = sendsBefore;
+        this.scriptPtr = 0;
+        this.autoStart = false;
+    }
+
+    /**
+     * Returns all instructions received so far, one character each.
+     */
+    public String getInstructionLog() {
+        return instructionLog.toString();
+    }
+
+    public Robot getBot() {
+        return bot;
+    }
+
+    /**
+     * Binds the server socket and starts serving a single PC connection on a background thread. Pass 0 to use an
+     * ephemeral port. Returns the port the emulator is listening on.
+     */
+    public int start(int port) throws IOException {
+        server = new ServerSocket(port);
+        running = true;
+
+        worker = new Thread(this::serve, "RPiEmulator");
+        worker.setDaemon(true);
+        worker.start();
+
+        System.out.println("RPiEmulator listening on port " + server.getLocalPort() + "...");
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops the emulator and prints the protocol statistics.
+     */
+    public void stop() {
+        running = false;
+        try {
+            if (conn != null) conn.close();
+            if (server != null) server.close();
+        } catch (IOException e) {
+            System.out.println("RPiEmulator.stop() --> IOException");
+        }
+        printStats();
+    }
+
+    /**
+     * Sends a message to the PC as if it came from the Android tablet (e.g. EX_START, FP_START).
+     */
+    public synchronized void sendToPc(String msg) {
+        if (writer == null) return;
+
+        try {
+            writer.write(msg + "\n");
+            writer.flush();
+            bytesOut += msg.length() + 1;
+            lastActivity = System.currentTimeMillis();
+        } catch (IOException e) {
+            System.out.println("RPiEmulator.sendToPc() --> IOException");
+        }
+    }
+
+    private void serve() {
+        try {
+            conn = server.accept();
+            conn.setTcpNoDelay(true);
+            writer = new BufferedWriter(new OutputStreamWriter(conn.getOutputStream()));
+            reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+            startTime = System.currentTimeMillis();
+            lastActivity = startTime;
+            System.out.println("RPiEmulator --> PC connected.");
+
+            if (autoFastestPath > 0) startIdleWatchdog();
+            if (script != null) releaseScript();
+
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                bytesIn += line.length() + 1;
+                lastActivity = System.currentTimeMillis();
+
+                if (line.equals(CommMgr.INSTRUCTIONS)) {
+                    String instr = reader.readLine();
+                    if (instr == null) break;
+                    bytesIn += instr.length() + 1;
+                    countMsg(CommMgr.INSTRUCTIONS);
+                    handleInstruction(instr);
+                } else if (line.equals(CommMgr.BOT_START)) {
+                    countMsg(CommMgr.BOT_START);
+                    robotMsgCount++;
+                    if (script != null) releaseScript();
+                    else reply();
+                } else if (line.startsWith(CommMgr.MAP_STRINGS + " ")) {
+                    countMsg(CommMgr.MAP_STRINGS);
+                } else if (line.startsWith(CommMgr.MAP_DELTA + " ")) {
+                    countMsg(CommMgr.MAP_DELTA);
+                } else if (line.startsWith(CommMgr.BOT_POS + " ")) {
+                    countMsg(CommMgr.BOT_POS);
+                } else {
+                    countMsg(line.split(" ")[0]);
+                    System.out.println("RPiEmulator --> Unknown message: " + line);
+                }
+            }
+        } catch (IOException e) {
+            if (running) System.out.println("RPiEmulator.serve() --> IOException");
+        }
+    }
+
+    private void countMsg(String msgType) {
+        synchronized (msgCounts) {
+            msgCounts.merge(msgType, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Moves the simulated robot according to the instruction and replies with a new sensor frame. A digit is a
+     * multiple forward movement ('0' represents 10 cells).
+     */
+    private void handleInstruction(String instr) {
+        char c = instr.isEmpty() ? 'E' : instr.charAt(0);
+        instructionLog.append(c);
+        robotMsgCount++;
+
+        if (script != null) {
+            releaseScript();
+            return;
+        }
+
+        if (Character.isDigit(c)) {
+            int count = (c == '0') ? 10 : c - '0';
+            for (int i = 0; i < count; i++) bot.move(MOVEMENT.FORWARD, false);
+        } else {
+            switch (c) {
+                case 'F':
+                    bot.move(MOVEMENT.FORWARD, false);
+                    break;
+                case 'B':
+                    bot.move(MOVEMENT.BACKWARD, false);
+                    break;
+                case 'R':
+                    bot.move(MOVEMENT.RIGHT, false);
+                    break;
+                case 'L':
+                    bot.move(MOVEMENT.LEFT, false);
+                    break;
+                case 'C':
+                    bot.move(MOVEMENT.CALIBRATE, false);
+                    break;
+                default:
+                    System.out.println("RPiEmulator --> Unknown instruction: " + instr);
+                    break;
+            }
+        }
+
+        reply();
+
+        instrCount++;
+        if (autoStart && !exStarted && instrCount == CALIBRATION_INSTRUCTIONS) {
+            exStarted = true;
+            sendToPc(CommMgr.EX_START);
+        }
+    }
+
+    /**
+     * Sends the scripted messages that are due. Closes the connection once the script is exhausted and the PC is
+     * still waiting for a reply.
+     */
+    private void releaseScript() {
+        while (scriptPtr < script.size() && scriptSends.get(scriptPtr) <= robotMsgCount) {
+            sendToPc(script.get(scriptPtr++));
+        }
+
+        if (scriptPtr == script.size() && robotMsgCount > 0) {
+            System.out.println("RPiEmulator --> End of script.");
+            try {
+                conn.close();
+            } catch (IOException e) {
+                System.out.println("RPiEmulator.releaseScript() --> IOException");
+            }
+        }
+    }
+
+    /**
+     * Waits for the configured latency (plus jitter) and sends a sensor frame for the robot's current pose.
+     */
+    private void reply() {
+        int delay = latency + (jitter > 0 ? random.nextInt(jitter + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                System.out.println("Something went wrong in RPiEmulator.reply()!");
+            }
+        }
+
+        sendToPc(generateSensorFrame());
+        framesSent++;
+    }
+
+    /**
+     * Generates an SDATA frame using the Sensor model on the real arena. Readings of an obstacle before a sensor's
+     * lower range are reported as 0, like the actual sensors.
+     */
+    private String generateSensorFrame() {
+        bot.setSensors();
+        int[] values = bot.sense(sensedMap, realMap);
+
+        StringBuilder sb = new StringBuilder(CommMgr.SENSOR_DATA);
+        for (int i = 0; i < values.length; i++) {
+            int lower = (i == 5) ? RobotConstants.SENSOR_LONG_RANGE_L : RobotConstants.SENSOR_SHORT_RANGE_L;
+            int upper = (i == 5) ? RobotConstants.SENSOR_LONG_RANGE_H : RobotConstants.SENSOR_SHORT_RANGE_H;
+
+            int val = values[i];
+            if (noise > 0 && random.nextDouble() < noise) {
+                val = random.nextInt(upper - lower + 2) + lower;
+                if (val > upper) val = -1;
+            } else if (val > 0 && val < lower) {
+                val = 0;
+            } else if (i == 1 && val != 1 && isPhantomDue()) {
+                val = 1;
+            }
+
+            sb.append(";").append(SENSOR_IDS[i]).append("_").append(val);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns true if a phantom obstacle should be reported in the cell right in front of the front center sensor.
+     */
+    private boolean isPhantomDue() {
+        if (phantomRate <= 0 || random.nextDouble() >= phantomRate) return false;
+
+        if (!isInstructionQueued()) return false;
+
+        int row = bot.getRobotPosRow(), col = bot.getRobotPosCol();
+        switch (bot.getRobotCurDir()) {
+            case NORTH:
+                row += 2;
+                break;
+            case EAST:
+                col += 2;
+                break;
+            case SOUTH:
+                row -= 2;
+                break;
+            case WEST:
+                col -= 2;
+                break;
+        }
+        if (!realMap.checkValidCoordinates(row, col) || phantomCells[row * MapConstants.MAP_COLS + col]) return false;
+
+        phantomCells[row * MapConstants.MAP_COLS + col] = true;
+        phantomCount++;
+        return true;
+    }
+
+    /**
+     * Returns true if the PC has already sent another INSTR message that has not been handled yet.
+     */
+    private boolean isInstructionQueued() {
+        try {
+            reader.mark(READ_AHEAD_LIMIT);
+            try {
+                while (reader.ready()) {
+                    String line = reader.readLine();
+                    if (line == null) return false;
+                    if (line.equals(CommMgr.INSTRUCTIONS)) return true;
+                }
+                return false;
+            } finally {
+                reader.reset();
+            }
+        } catch (IOException e) {
+            System.out.println("RPiEmulator.isInstructionQueued() --> IOException");
+            return false;
+        }
+    }
+
+    /**
+     * Emulates the Android tablet sending FP_START once the exploration has finished i.e. the PC has gone quiet.
+     */
+    private void startIdleWatchdog() {
+        Thread watchdog = new Thread(() -> {
+            while (running && !fpStarted) {
+                try {
+                    Thread.sleep(Math.max(10, autoFastestPath / 4));
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                if (exStarted && System.currentTimeMillis() - lastActivity >= autoFastestPath) {
+                    fpStarted = true;
+                    sendToPc(CommMgr.FP_START);
+                }
+            }
+        }, "RPiEmulator-Android");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    /**
+     * Prints the message counts, bytes transferred & instruction throughput since the PC connected.
+     */
+    public void printStats() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+
+        System.out.println("RPiEmulator stats:");
+        synchronized (msgCounts) {
+            for (java.util.Map.Entry<String, Integer> e : msgCounts.entrySet()) {
+                System.out.println("  " + e.getKey() + ": " + e.getValue());
+            }
+        }
+        System.out.println("  Frames sent: " + framesSent);
+        if (phantomCount > 0) System.out.println("  Phantom obstacles: " + phantomCount);
+        System.out.println("  Bytes in: " + bytesIn + ", Bytes out: " + bytesOut);
+        System.out.printf("  %.2f INSTR/s over %.2f s%n", instrCount * 1000.0 / elapsed, elapsed / 1000.0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String filename = args.length > 0 ? args[0] : "SampleArena1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+
+        RPiEmulator emulator = new RPiEmulator(filename);
+        if (args.length > 2) emulator.setLatency(Integer.parseInt(args[2]));
+        if (args.length > 3) emulator.setJitter(Integer.parseInt(args[3]));
+        if (args.length > 4) emulator.setNoise(Double.parseDouble(args[4]));
+        emulator.setAutoFastestPath(2000);
+        emulator.start(port);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(emulator::printStats));
+        try {
+            emulator.worker.join();
+        } catch (InterruptedException e) {
+            System.out.println("Something went wrong in RPiEmulator.main()!");
+        }
+    }
+}
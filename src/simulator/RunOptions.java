@@ -0,0 +1,206 @@
+package simulator;
+
+import map.MapConstants;
+import robot.RobotConstants;
+import utils.CommMgr;
+
+/**
+ * Command-line options shared by Simulator & HeadlessRunner.
+ *
+ * Usage: [--mode explore|fastest|time|coverage] [--map name] [--time MM:SS|seconds] [--coverage percent]
+ * [--speed ms] [--transport real|sim|emulator] [--host host] [--port port] [--pipeline window] [--delta]
+ * [--clearance weight] [--motion-model file] [--speculate] [--optimistic penalty] [--tour]
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class RunOptions {
+    public enum MODE {
+        EXPLORE, FASTEST, TIME, COVERAGE
+    }
+
+    public enum TRANSPORT {
+        REAL, SIM, EMULATOR
+    }
+
+    public static final String USAGE = "Usage: [--mode explore|fastest|time|coverage] [--map name] [--time MM:SS] [--coverage percent] [--speed ms] [--transport real|sim|emulator] [--host host] [--port port] [--pipeline window] [--delta] [--clearance weight] [--motion-model file] [--speculate] [--optimistic penalty] [--tour]";
+
+    private MODE mode = MODE.EXPLORE;
+    private String mapName = null;
+    private static final int DEFAULT_TIME_LIMIT = 3600;    // seconds
+
+    private int timeLimit = DEFAULT_TIME_LIMIT;     // seconds
+    private int coverageLimit = MapConstants.MAP_SIZE;  // cells
+    private int speed = RobotConstants.SPEED;
+    private TRANSPORT transport = TRANSPORT.REAL;
+    private String host = CommMgr.RPI_HOST;
+    private int port = CommMgr.RPI_PORT;
+    private int pipelineWindow = 1;
+    private boolean deltaMapUpdates = false;
+    private boolean speculative = false;
+    private boolean tourPlanning = false;
+    private double clearanceWeight = 0;
+    private String motionModelFile = null;
+    private double unexploredPenalty = -1;
+    private boolean timeLimitSet = false;
+    private boolean coverageLimitSet = false;
+
+    /**
+     * Parses the command-line arguments. Throws an IllegalArgumentException for unknown options or bad values.
+     */
+    public static RunOptions parse(String[] args) {
+        RunOptions opts = new RunOptions();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--delta")) {
+                opts.deltaMapUpdates = true;
+                continue;
+            }
+            if (arg.equals("--speculate")) {
+                opts.speculative = true;
+                continue;
+            }
+            if (arg.equals("--tour")) {
+                opts.tourPlanning = true;
+                continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+
+            try {
+                switch (arg) {
+                    case "--mode":
+                        opts.mode = MODE.valueOf(value.toUpperCase());
+                        break;
+                    case "--map":
+                        opts.mapName = value;
+                        break;
+                    case "--time":
+                        opts.timeLimit = parseTime(value);
+                        opts.timeLimitSet = true;
+                        break;
+                    case "--coverage":
+                        opts.coverageLimit = (int) (Integer.parseInt(value) * MapConstants.MAP_SIZE / 100.0);
+                        opts.coverageLimitSet = true;
+                        break;
+                    case "--speed":
+                        opts.speed = Integer.parseInt(value);
+                        break;
+                    case "--transport":
+                        opts.transport = TRANSPORT.valueOf(value.toUpperCase());
+                        break;
+                    case "--host":
+                        opts.host = value;
+                        break;
+                    case "--port":
+                        opts.port = Integer.parseInt(value);
+                        break;
+                    case "--pipeline":
+                        opts.pipelineWindow = Integer.parseInt(value);
+                        break;
+                    case "--clearance":
+                        opts.clearanceWeight = Double.parseDouble(value);
+                        break;
+                    case "--motion-model":
+                        opts.motionModelFile = value;
+                        break;
+                    case "--optimistic":
+                        opts.unexploredPenalty = Double.parseDouble(value);
+                        if (opts.unexploredPenalty < 0) throw new NumberFormatException();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad value for " + arg + ": " + value);
+            }
+        }
+
+        if (opts.mode == MODE.TIME && !opts.timeLimitSet) throw new IllegalArgumentException("--time is required for the time mode");
+        if (opts.mode == MODE.COVERAGE && !opts.coverageLimitSet) throw new IllegalArgumentException("--coverage is required for the coverage mode");
+
+        return opts;
+    }
+
+    /**
+     * Parses a time limit given as MM:SS or as a number of seconds.
+     */
+    private static int parseTime(String value) {
+        if (value.contains(":")) {
+            String[] timeArr = value.split(":");
+            return (Integer.parseInt(timeArr[0]) * 60) + Integer.parseInt(timeArr[1]);
+        }
+        return Integer.parseInt(value);
+    }
+
+    public MODE getMode() {
+        return mode;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    /**
+     * Returns the time limit (in seconds); only the time mode is limited by --time.
+     */
+    public int getTimeLimit() {
+        return mode == MODE.TIME ? timeLimit : DEFAULT_TIME_LIMIT;
+    }
+
+    /**
+     * Returns the coverage limit (in cells); only the coverage mode is limited by --coverage.
+     */
+    public int getCoverageLimit() {
+        return mode == MODE.COVERAGE ? coverageLimit : MapConstants.MAP_SIZE;
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public TRANSPORT getTransport() {
+        return transport;
+    }
+
+    public boolean isRealRun() {
+        return transport != TRANSPORT.SIM;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getPipelineWindow() {
+        return pipelineWindow;
+    }
+
+    public boolean getDeltaMapUpdates() {
+        return deltaMapUpdates;
+    }
+
+    public boolean getSpeculative() {
+        return speculative;
+    }
+
+    public boolean getTourPlanning() {
+        return tourPlanning;
+    }
+
+    public double getClearanceWeight() {
+        return clearanceWeight;
+    }
+
+    public String getMotionModelFile() {
+        return motionModelFile;
+    }
+
+    public double getUnexploredPenalty() {
+        return unexploredPenalty;
+    }
+}
@@ -1,17 +1,28 @@
 package simulator;
 
+import algorithms.BackgroundPlanner;
 import algorithms.ExplorationAlgo;
 import algorithms.FastestPathAlgo;
 import map.Map;
 import map.MapConstants;
+import map.MapView;
+import robot.MotionCostModel;
 import robot.Robot;
 import robot.RobotConstants;
+import robot.RobotConstants.MOVEMENT;
+import utils.AndroidPublisher;
 import utils.CommMgr;
+import utils.ExploredMapStore;
+import utils.MotionTelemetry;
+import utils.RunJournal;
+import utils.RunReport;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.util.ArrayList;
 
 import static utils.MapDescriptor.generateMapDescriptor;
 import static utils.MapDescriptor.loadMapFromDisk;
@@ -35,27 +46,231 @@ public class Simulator {
 
     private static int timeLimit = 3600;            // time limit
     private static int coverageLimit = 300;         // coverage limit
+    private static int pipelineWindow = 1;          // FORWARD instructions sent ahead of sensor frames
+    private static boolean deltaMapUpdates = false; // send MAPD deltas to Android instead of full MAP strings
+    private static boolean speculative = false;     // precompute exploration decisions while moves are in flight
+    private static boolean tourPlanning = false;    // sweep up unexplored pockets before heading home
+    private static double clearanceWeight = 0;      // fastest path cost per cell of missing obstacle clearance
+    private static MotionCostModel costModel = MotionCostModel.DEFAULT;     // fastest path costs of runs & turns
+    private static double unexploredPenalty = -1;   // cost of an unexplored cell on the way home, < 0 forbids them
+
+    private static final long EMULATOR_FP_IDLE = 500;   // idle time after which the in-process emulator sends FP_START (ms)
+    private static final long BACKGROUND_PLAN_TIMEOUT = 2000;   // max. wait for the background plan after exploration (ms)
+
+    private static ArrayList<MOVEMENT> fastestPathPlan = null;  // precomputed START --> GOAL movements
 
     private static final CommMgr comm = CommMgr.getCommMgr();
-    private static final boolean realRun = true;
+    private static boolean realRun = true;
+    private static RPiEmulator emulator = null;     // in-process emulator for the emulator transport
+
+    /**
+     * Initialises the different maps and displays the application. See RunOptions for the command-line options;
+     * by default, the simulator connects to the RasPi.
+     */
+    public static void main(String[] args) throws IOException {
+        RunOptions opts;
+        try {
+            opts = RunOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(RunOptions.USAGE);
+            return;
+        }
+
+        init(opts);
+        displayEverything();
+    }
 
     /**
-     * Initialises the different maps and displays the application.
+     * Applies the run options: opens the connection for real runs (starting an in-process RPiEmulator for the
+     * emulator transport), creates the robot & maps and loads the arena (simulated runs) or the explored map saved
+     * by a previous run (real runs).
      */
-    public static void main(String[] args) {
-        if (realRun) comm.openConnection();
+    static void init(RunOptions opts) throws IOException {
+        realRun = opts.isRealRun();
+        timeLimit = opts.getTimeLimit();
+        coverageLimit = opts.getCoverageLimit();
+        pipelineWindow = opts.getPipelineWindow();
+        deltaMapUpdates = opts.getDeltaMapUpdates();
+        speculative = opts.getSpeculative();
+        tourPlanning = opts.getTourPlanning();
+        clearanceWeight = opts.getClearanceWeight();
+        unexploredPenalty = opts.getUnexploredPenalty();
+        if (opts.getMotionModelFile() != null) {
+            MotionCostModel model = MotionCostModel.load(opts.getMotionModelFile());
+            if (model != null) costModel = model;
+            System.out.println("Motion cost model: " + costModel);
+        }
+
+        if (opts.getTransport() == RunOptions.TRANSPORT.EMULATOR) {
+            emulator = new RPiEmulator(opts.getMapName());
+            emulator.setAutoFastestPath(EMULATOR_FP_IDLE);
+            comm.openConnection("localhost", emulator.start(0));
+        } else if (realRun) {
+            comm.openConnection(opts.getHost(), opts.getPort());
+        }
+
+        if (realRun) {
+            AndroidPublisher.getAndroidPublisher().setDeltaUpdates(deltaMapUpdates);
+            AndroidPublisher.getAndroidPublisher().start();
+        }
 
         bot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, realRun);
+        if (!realRun) bot.setSpeed(opts.getSpeed());
 
         if (!realRun) {
             realMap = new Map(bot);
             realMap.setAllUnexplored();
+            if (opts.getMapName() != null) loadMapFromDisk(realMap, opts.getMapName());
         }
 
         exploredMap = new Map(bot);
         exploredMap.setAllUnexplored();
 
-        displayEverything();
+        // Warm start: reuse the explored map & plan saved by a previous exploration run if the run starts with the
+        // fastest path; runExploration() starts again from an unexplored map. The file belongs to the real robot, so
+        // emulator runs neither load nor overwrite it.
+        if (realRun && emulator == null) {
+            fastestPathPlan = ExploredMapStore.load(ExploredMapStore.DEFAULT_FILE, exploredMap, RobotConstants.START_ROW, RobotConstants.START_COL, RobotConstants.START_DIR, RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+        }
+    }
+
+    /**
+     * Runs the exploration from START (sending BOT_START first in real runs) on an unexplored map, then generates the
+     * map descriptor and, in real runs, saves the explored map & the START --> GOAL plan.
+     */
+    static void runExploration() {
+        bot.setRobotPos(RobotConstants.START_ROW, RobotConstants.START_COL);
+        exploredMap.setObstacleRows(new int[MapConstants.MAP_ROWS]);
+        exploredMap.setAllUnexplored();
+        fastestPathPlan = null;
+        exploredMap.publishSnapshot();
+
+        ExplorationAlgo exploration;
+        exploration = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
+        exploration.setPipelineWindow(pipelineWindow);
+        exploration.setSpeculative(speculative);
+        exploration.setTourPlanning(tourPlanning);
+        exploration.setUnexploredPenalty(unexploredPenalty);
+
+        // In real runs, the START --> GOAL plan is kept up to date in the background while exploring.
+        BackgroundPlanner backgroundPlanner = null;
+        if (realRun) {
+            backgroundPlanner = new BackgroundPlanner(clearanceWeight, costModel);
+            exploration.setBackgroundPlanner(backgroundPlanner);
+        }
+
+        if (realRun) {
+            RunJournal.getRunJournal().start("journal-" + System.currentTimeMillis() + ".bin");
+            CommMgr.getCommMgr().sendMsg(null, CommMgr.BOT_START);
+        }
+
+        RunReport report = RunReport.start("report-exploration-" + System.currentTimeMillis(), bot, exploredMap);
+        exploration.runExploration();
+        report.finish();
+        exploredMap.publishSnapshot();
+        generateMapDescriptor(exploredMap);
+
+        ArrayList<MOVEMENT> plan = null;
+        if (backgroundPlanner != null) {
+            backgroundPlanner.mapChanged(exploredMap);
+            plan = backgroundPlanner.awaitPlan(BACKGROUND_PLAN_TIMEOUT);
+            backgroundPlanner.shutdown();
+        }
+        if (realRun) saveExploredMap(plan);
+
+        if (realRun) {
+            AndroidPublisher.getAndroidPublisher().flush();
+            comm.getStats().dump();
+        }
+    }
+
+    /**
+     * Runs the fastest path from START to GOAL (after FP_START in real runs), executing the precomputed plan if
+     * there is one.
+     */
+    static void runFastestPath() {
+        bot.setRobotPos(RobotConstants.START_ROW, RobotConstants.START_COL);
+        exploredMap.publishSnapshot();
+
+        if (realRun) {
+            while (true) {
+                System.out.println("Waiting for FP_START...");
+                String msg = comm.recvMsg();
+                if (msg.equals(CommMgr.FP_START)) break;
+            }
+        }
+
+        RunReport report = RunReport.start("report-fastest-path-" + System.currentTimeMillis(), bot, exploredMap);
+        FastestPathAlgo fastestPath;
+        fastestPath = new FastestPathAlgo(exploredMap, bot);
+        fastestPath.setClearanceWeight(clearanceWeight);
+        fastestPath.setCostModel(costModel);
+
+        if (fastestPathPlan != null) {
+            bot.setRobotDir(RobotConstants.START_DIR);
+            fastestPath.executeMovements(fastestPathPlan);
+        } else {
+            fastestPath.runFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+        }
+        report.finish();
+        exploredMap.publishSnapshot();
+
+        if (realRun) {
+            AndroidPublisher.getAndroidPublisher().flush();
+            comm.getStats().dump();
+            RunJournal.getRunJournal().stop();
+            // The emulator's instruction timings say nothing about the real robot.
+            if (emulator == null) saveMotionModel();
+        }
+    }
+
+    /**
+     * Fits a MotionCostModel to the instruction timings measured so far and saves it for the next run.
+     */
+    private static void saveMotionModel() {
+        MotionCostModel fitted = MotionTelemetry.getMotionTelemetry().fit();
+        if (fitted != null) {
+            fitted.save(MotionCostModel.DEFAULT_FILE);
+            System.out.println("Fitted motion cost model (" + MotionTelemetry.getMotionTelemetry().getSampleCount() + " samples): " + fitted);
+        }
+    }
+
+    /**
+     * Closes the connection and stops the background threads started by init().
+     */
+    static void shutdown() {
+        if (realRun) {
+            AndroidPublisher.getAndroidPublisher().stop();
+            comm.closeConnection();
+        }
+        if (emulator != null) {
+            emulator.stop();
+        }
+    }
+
+    static Map getExploredMap() {
+        return exploredMap;
+    }
+
+    static Robot getBot() {
+        return bot;
+    }
+
+    /**
+     * Keeps the START --> GOAL plan for the fastest path and, with the real robot, saves it to disk with the explored
+     * map. The plan is computed now if plan is null (i.e. no background plan is available).
+     */
+    private static void saveExploredMap(ArrayList<MOVEMENT> plan) {
+        if (plan == null) {
+            Robot planBot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, false);
+            FastestPathAlgo planner = new FastestPathAlgo(exploredMap, planBot);
+            planner.setClearanceWeight(clearanceWeight);
+            planner.setCostModel(costModel);
+            plan = planner.planFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+        }
+        fastestPathPlan = plan;
+        if (emulator == null) ExploredMapStore.save(ExploredMapStore.DEFAULT_FILE, exploredMap, RobotConstants.START_ROW, RobotConstants.START_COL, RobotConstants.START_DIR, RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL, fastestPathPlan);
     }
 
     /**
@@ -100,9 +315,9 @@ public class Simulator {
      */
     private static void initMainLayout() {
         if (!realRun) {
-            _mapCards.add(realMap, "REAL_MAP");
+            _mapCards.add(new MapView(realMap), "REAL_MAP");
         }
-        _mapCards.add(exploredMap, "EXPLORATION");
+        _mapCards.add(new MapView(exploredMap), "EXPLORATION");
 
         CardLayout cl = ((CardLayout) _mapCards.getLayout());
         if (!realRun) {
@@ -152,7 +367,7 @@ public class Simulator {
                             loadMapFromDisk(realMap, loadTF.getText());
                             CardLayout cl = ((CardLayout) _mapCards.getLayout());
                             cl.show(_mapCards, "REAL_MAP");
-                            realMap.repaint();
+                            realMap.publishSnapshot();
                         }
                     });
 
@@ -168,22 +383,7 @@ public class Simulator {
         // FastestPath Class for Multithreading
         class FastestPath extends SwingWorker<Integer, String> {
             protected Integer doInBackground() throws Exception {
-                bot.setRobotPos(RobotConstants.START_ROW, RobotConstants.START_COL);
-                exploredMap.repaint();
-
-                if (realRun) {
-                    while (true) {
-                        System.out.println("Waiting for FP_START...");
-                        String msg = comm.recvMsg();
-                        if (msg.equals(CommMgr.FP_START)) break;
-                    }
-                }
-
-                FastestPathAlgo fastestPath;
-                fastestPath = new FastestPathAlgo(exploredMap, bot);
-
-                fastestPath.runFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
-
+                runFastestPath();
                 return 222;
             }
         }
@@ -191,23 +391,7 @@ public class Simulator {
         // Exploration Class for Multithreading
         class Exploration extends SwingWorker<Integer, String> {
             protected Integer doInBackground() throws Exception {
-                int row, col;
-
-                row = RobotConstants.START_ROW;
-                col = RobotConstants.START_COL;
-
-                bot.setRobotPos(row, col);
-                exploredMap.repaint();
-
-                ExplorationAlgo exploration;
-                exploration = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
-
-                if (realRun) {
-                    CommMgr.getCommMgr().sendMsg(null, CommMgr.BOT_START);
-                }
-
-                exploration.runExploration();
-                generateMapDescriptor(exploredMap);
+                runExploration();
 
                 if (realRun) {
                     new FastestPath().execute();
@@ -245,14 +429,7 @@ public class Simulator {
         // TimeExploration Class for Multithreading
         class TimeExploration extends SwingWorker<Integer, String> {
             protected Integer doInBackground() throws Exception {
-                bot.setRobotPos(RobotConstants.START_ROW, RobotConstants.START_COL);
-                exploredMap.repaint();
-
-                ExplorationAlgo timeExplo = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
-                timeExplo.runExploration();
-
-                generateMapDescriptor(exploredMap);
-
+                runExploration();
                 return 333;
             }
         }
@@ -292,14 +469,7 @@ public class Simulator {
         // CoverageExploration Class for Multithreading
         class CoverageExploration extends SwingWorker<Integer, String> {
             protected Integer doInBackground() throws Exception {
-                bot.setRobotPos(RobotConstants.START_ROW, RobotConstants.START_COL);
-                exploredMap.repaint();
-
-                ExplorationAlgo coverageExplo = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
-                coverageExplo.runExploration();
-
-                generateMapDescriptor(exploredMap);
-
+                runExploration();
                 return 444;
             }
         }
@@ -0,0 +1,230 @@
+package utils;
+
+import map.Map;
+import map.MapConstants;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes MAP & BOT_POS updates to the Android tablet from a background thread so that the robot's control loop
+ * never waits on the display. Holds only the latest cell states & pose, both copied on the caller's thread when the
+ * update is queued; intermediate states that were not sent before a newer one arrived are dropped. At most one update
+ * of each kind is sent per interval.
+ *
+ * If the publisher has not been started, updates are sent synchronously as before.
+ *
+ * With delta updates enabled, only the cells that changed since the last update are sent in a MAPD message:
+ * "MAPD version cells" where cells holds 3 hex digits per changed cell, the value index * 3 + state with index =
+ * row * MAP_COLS + col and state 0 (unexplored), 1 (free) or 2 (obstacle). A full MAP keyframe is sent first, every
+ * keyframeInterval updates, whenever the tablet asks for one with MAP_REQ and instead of a delta that would not be
+ * shorter. In delta mode, the keyframe carries its version, "MAP part1 part2 version", and the next
+ * MAPD has the following version. Both are encoded from the same copy of the cell states that later deltas are
+ * computed against.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class AndroidPublisher {
+    public static final int DEFAULT_INTERVAL = 100;     // min. delay between two updates (ms)
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 20;  // no. of updates between two full MAP keyframes
+
+    private static AndroidPublisher publisher = null;
+
+    private final AtomicReference<byte[]> latestStates = new AtomicReference<>();
+    private final AtomicReference<String> latestPose = new AtomicReference<>();
+    private final Object signal = new Object();
+
+    private int interval = DEFAULT_INTERVAL;
+    private boolean deltaUpdates;
+    private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+    private volatile boolean keyframeRequested;
+    private byte[] lastSentStates;
+    private int updatesSinceKeyframe;
+    private int version;
+    private Thread thread;
+    private volatile boolean running;
+
+    private AndroidPublisher() {
+    }
+
+    public static AndroidPublisher getAndroidPublisher() {
+        if (publisher == null) {
+            publisher = new AndroidPublisher();
+        }
+        return publisher;
+    }
+
+    public void setInterval(int interval) {
+        this.interval = interval;
+    }
+
+    public void setDeltaUpdates(boolean deltaUpdates) {
+        this.deltaUpdates = deltaUpdates;
+    }
+
+    public void setKeyframeInterval(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Makes the next map update a full MAP keyframe.
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts the publisher thread.
+     */
+    public synchronized void start() {
+        if (running) return;
+
+        running = true;
+        thread = new Thread(this::publishLoop, "AndroidPublisher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sends any pending update and stops the publisher thread.
+     */
+    public void stop() {
+        if (!running) return;
+
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            System.out.println("Something went wrong in AndroidPublisher.stop()!");
+        }
+        flush();
+    }
+
+    /**
+     * Copies the cell states of the map, which must be called from the thread that changes it. The map descriptor
+     * is generated from the copy on the publisher thread when it is next sent.
+     */
+    public void publishMap(Map map) {
+        byte[] states = new byte[MapConstants.MAP_SIZE];
+        map.copyCellStates(states);
+        if (!running) {
+            sendMap(states);
+            return;
+        }
+
+        latestStates.set(states);
+        wakeUp();
+    }
+
+    /**
+     * Sets the latest robot pose in the BOT_POS format i.e. "row,col,dir".
+     */
+    public void publishPose(String pose) {
+        if (!running) {
+            CommMgr.getCommMgr().sendMsg(pose, CommMgr.BOT_POS);
+            return;
+        }
+
+        latestPose.set(pose);
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Sends the pending map & pose updates, if any.
+     */
+    public synchronized void flush() {
+        String pose = latestPose.getAndSet(null);
+        if (pose != null) CommMgr.getCommMgr().sendMsg(pose, CommMgr.BOT_POS);
+
+        byte[] states = latestStates.getAndSet(null);
+        if (states != null) sendMap(states);
+    }
+
+    private synchronized void sendMap(byte[] states) {
+        if (!deltaUpdates) {
+            String[] mapStrings = MapDescriptor.encodeMapDescriptor(states);
+            CommMgr.getCommMgr().sendMsg(mapStrings[0] + " " + mapStrings[1], CommMgr.MAP_STRINGS);
+            return;
+        }
+
+        if (lastSentStates == null || keyframeRequested || updatesSinceKeyframe >= keyframeInterval) {
+            sendKeyframe(states, MapDescriptor.encodeMapDescriptor(states));
+            return;
+        }
+
+        String delta = encodeDelta(lastSentStates, states);
+        if (delta.isEmpty()) return;
+
+        String[] mapStrings = MapDescriptor.encodeMapDescriptor(states);
+        if (delta.length() >= mapStrings[0].length() + 1 + mapStrings[1].length()) {
+            sendKeyframe(states, mapStrings);
+            return;
+        }
+
+        version++;
+        updatesSinceKeyframe++;
+        CommMgr.getCommMgr().sendMsg(version + " " + delta, CommMgr.MAP_DELTA);
+        lastSentStates = states;
+    }
+
+    /**
+     * Sends the map descriptor strings encoded from states as the next version.
+     */
+    private void sendKeyframe(byte[] states, String[] mapStrings) {
+        keyframeRequested = false;
+        updatesSinceKeyframe = 0;
+        version++;
+        CommMgr.getCommMgr().sendMsg(mapStrings[0] + " " + mapStrings[1] + " " + version, CommMgr.MAP_STRINGS);
+        lastSentStates = states;
+    }
+
+    /**
+     * Returns the cells that differ between from & to, 3 hex digits per cell for index * 3 + state.
+     */
+    static String encodeDelta(byte[] from, byte[] to) {
+        StringBuilder delta = new StringBuilder();
+        for (int i = 0; i < to.length; i++) {
+            if (to[i] != from[i]) {
+                int value = i * 3 + to[i];
+                delta.append(MapDescriptor.HEX_CHARS[value >>> 8]).append(MapDescriptor.HEX_CHARS[(value >>> 4) & 0xF]).append(MapDescriptor.HEX_CHARS[value & 0xF]);
+            }
+        }
+        return delta.toString();
+    }
+
+    private void publishLoop() {
+        while (running) {
+            synchronized (signal) {
+                while (running && latestStates.get() == null && latestPose.get() == null) {
+                    try {
+                        signal.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            if (!running) return;
+
+            flush();
+
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
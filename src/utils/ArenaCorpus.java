@@ -0,0 +1,193 @@
+package utils;
+
+import map.Map;
+import map.MapConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Packed binary corpus of arenas for bulk evaluation. The file is memory-mapped and each arena is exposed as a
+ * zero-copy view.
+ *
+ * Layout (big-endian):
+ *
+ *   int  MAGIC ('MDPA')
+ *   int  VERSION
+ *   int  rows
+ *   int  cols
+ *   int  no. of arenas
+ *   int  bytes per arena
+ *   [arenas]
+ *
+ * Each arena is one 16-bit word per row, from row 0 to row MAP_ROWS - 1. Bit c of a row word is set if [row, c] is
+ * an obstacle.
+ *
+ * Usage: ArenaCorpus [output.bin] [mapName...]   (converts maps/*.txt; all maps if none are given)
+ *
+ * @author Suyash Lakhotia
+ */
+// @formatter:on
+
+public class ArenaCorpus {
+    public static final int MAGIC = 0x4D445041;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final int ARENA_SIZE = MapConstants.MAP_ROWS * 2;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private ArenaCorpus(MappedByteBuffer buffer, int count) {
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * Memory-maps a corpus file and validates its header.
+     */
+    public static ArenaCorpus open(String path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r"); FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+
+            if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException(path + " is not an arena corpus");
+            if (buffer.getInt(4) != VERSION) throw new IOException(path + " has unsupported version " + buffer.getInt(4));
+            if (buffer.getInt(8) != MapConstants.MAP_ROWS || buffer.getInt(12) != MapConstants.MAP_COLS || buffer.getInt(20) != ARENA_SIZE) {
+                throw new IOException(path + " was written for a different arena size");
+            }
+
+            int count = buffer.getInt(16);
+            if (channel.size() < HEADER_SIZE + (long) count * ARENA_SIZE) throw new IOException(path + " is truncated");
+
+            return new ArenaCorpus(buffer, count);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns a view of the i-th arena. No data is copied.
+     */
+    public Arena get(int i) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException("Arena " + i + " of " + count);
+        return new Arena(buffer, HEADER_SIZE + i * ARENA_SIZE);
+    }
+
+    /**
+     * View of a single arena inside a corpus buffer.
+     */
+    public static class Arena {
+        private final ByteBuffer buffer;
+        private final int offset;
+
+        private Arena(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        /**
+         * Returns the obstacle bits of a row; bit c is set if [row, c] is an obstacle.
+         */
+        public int getRow(int row) {
+            return buffer.getShort(offset + row * 2) & 0xFFFF;
+        }
+
+        public boolean isObstacle(int row, int col) {
+            return ((getRow(row) >>> col) & 1) == 1;
+        }
+
+        /**
+         * Sets the obstacles of this arena in the passed Map object and sets all cells to explored.
+         */
+        public void loadInto(Map map) {
+            int[] rows = new int[MapConstants.MAP_ROWS];
+            for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+                rows[row] = getRow(row);
+            }
+            map.setObstacleRows(rows);
+            map.setAllExplored();
+        }
+    }
+
+    /**
+     * Writes arenas to a new corpus file. The arena count in the header is filled in by close().
+     */
+    public static class Writer implements AutoCloseable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final ByteBuffer arenaBuffer = ByteBuffer.allocate(ARENA_SIZE);
+        private int count;
+
+        public Writer(String path) throws IOException {
+            file = new RandomAccessFile(path, "rw");
+            file.setLength(0);
+            channel = file.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(MapConstants.MAP_ROWS).putInt(MapConstants.MAP_COLS).putInt(0).putInt(ARENA_SIZE);
+            header.flip();
+            channel.write(header);
+        }
+
+        /**
+         * Appends an arena given as obstacles indexed by [row][col].
+         */
+        public void write(boolean[][] obstacles) throws IOException {
+            arenaBuffer.clear();
+            for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+                int bits = 0;
+                for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+                    if (obstacles[row][col]) bits |= 1 << col;
+                }
+                arenaBuffer.putShort((short) bits);
+            }
+            arenaBuffer.flip();
+            channel.write(arenaBuffer);
+            count++;
+        }
+
+        public void close() throws IOException {
+            ByteBuffer countBuffer = ByteBuffer.allocate(4).putInt(count);
+            countBuffer.flip();
+            channel.write(countBuffer, 16);
+            channel.close();
+            file.close();
+        }
+    }
+
+    /**
+     * Converts arena text files in maps/ into a corpus file.
+     */
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "maps/corpus.bin";
+
+        ArrayList<String> names = new ArrayList<>(Arrays.asList(args).subList(Math.min(1, args.length), args.length));
+        if (names.isEmpty()) {
+            File[] files = new File("maps").listFiles((dir, name) -> name.endsWith(".txt"));
+            if (files == null) files = new File[0];
+            Arrays.sort(files);
+            for (File f : files) names.add(f.getName().substring(0, f.getName().length() - 4));
+        }
+
+        try (Writer writer = new Writer(output)) {
+            for (String name : names) {
+                writer.write(MapDescriptor.readArenaFile("maps/" + name + ".txt"));
+                System.out.println("Added " + name);
+            }
+        }
+
+        ArenaCorpus corpus = open(output);
+        System.out.println("Wrote " + corpus.size() + " arenas to " + output);
+    }
+}
@@ -0,0 +1,180 @@
+package utils;
+
+import map.Map;
+import map.MapConstants;
+import robot.RobotConstants;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Seeded random arena generator for benchmark corpora. Obstacles are never placed in the START & GOAL zones (same
+ * rules as Map.setObstacleCell()) and an obstacle is only kept if the 3 x 3 robot can still get from START to GOAL.
+ *
+ * density:       fraction of the cells outside the START & GOAL zones that are obstacles
+ * clustering:    probability that a new obstacle grows from an existing one instead of being placed at random
+ * corridorWidth: min. no. of free cells between two obstacles (or an obstacle & the arena wall) in a row or column,
+ *                unless they touch
+ *
+ * Usage: ArenaGenerator [count] [seed] [density] [clustering] [corridorWidth] [outputPrefix]
+ *        Writes outputPrefix_N.txt for the first 20 arenas and outputPrefix.bin (ArenaCorpus) for all of them.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class ArenaGenerator {
+    private static final int MAX_TRIES_PER_OBSTACLE = 50;
+
+    private final Random random;
+    private final double density;
+    private final double clustering;
+    private final int corridorWidth;
+
+    public ArenaGenerator(long seed, double density, double clustering, int corridorWidth) {
+        this.random = new Random(seed);
+        this.density = density;
+        this.clustering = clustering;
+        this.corridorWidth = corridorWidth;
+    }
+
+    /**
+     * Generates the next arena. Returns obstacles indexed by [row][col].
+     */
+    public boolean[][] generate() {
+        boolean[][] obstacles = new boolean[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
+        ArrayList<int[]> placed = new ArrayList<>();
+
+        int zoneCells = 18;     // 3 x 3 START zone + 3 x 3 GOAL zone
+        int target = (int) Math.round(density * (MapConstants.MAP_SIZE - zoneCells));
+        int tries = 0;
+
+        while (placed.size() < target && tries < target * MAX_TRIES_PER_OBSTACLE) {
+            tries++;
+
+            int row, col;
+            if (!placed.isEmpty() && random.nextDouble() < clustering) {
+                int[] from = placed.get(random.nextInt(placed.size()));
+                int dir = random.nextInt(4);
+                row = from[0] + (dir == 0 ? 1 : (dir == 1 ? -1 : 0));
+                col = from[1] + (dir == 2 ? 1 : (dir == 3 ? -1 : 0));
+            } else {
+                row = random.nextInt(MapConstants.MAP_ROWS);
+                col = random.nextInt(MapConstants.MAP_COLS);
+            }
+
+            if (!canPlace(obstacles, row, col)) continue;
+
+            obstacles[row][col] = true;
+            if (!isGoalReachable(obstacles)) {
+                obstacles[row][col] = false;
+                continue;
+            }
+            placed.add(new int[]{row, col});
+        }
+
+        return obstacles;
+    }
+
+    /**
+     * Returns true if an obstacle may be placed at [row, col] without entering the START/GOAL zones or creating a
+     * gap narrower than corridorWidth in its row or column.
+     */
+    private boolean canPlace(boolean[][] obstacles, int row, int col) {
+        if (row < 0 || col < 0 || row >= MapConstants.MAP_ROWS || col >= MapConstants.MAP_COLS) return false;
+        if (obstacles[row][col] || Map.inStartZone(row, col) || Map.inGoalZone(row, col)) return false;
+
+        int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        for (int[] d : dirs) {
+            int gap = 0;
+            int r = row + d[0], c = col + d[1];
+            while (r >= 0 && c >= 0 && r < MapConstants.MAP_ROWS && c < MapConstants.MAP_COLS && !obstacles[r][c]) {
+                gap++;
+                r += d[0];
+                c += d[1];
+            }
+            if (gap > 0 && gap < corridorWidth) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Breadth-first search over the robot's center cell to check if GOAL can be reached from START.
+     */
+    static boolean isGoalReachable(boolean[][] obstacles) {
+        boolean[][] visited = new boolean[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[]{RobotConstants.START_ROW, RobotConstants.START_COL});
+        visited[RobotConstants.START_ROW][RobotConstants.START_COL] = true;
+
+        int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        while (!queue.isEmpty()) {
+            int[] cur = queue.poll();
+            if (cur[0] == RobotConstants.GOAL_ROW && cur[1] == RobotConstants.GOAL_COL) return true;
+
+            for (int[] d : dirs) {
+                int r = cur[0] + d[0], c = cur[1] + d[1];
+                if (r < 1 || c < 1 || r > MapConstants.MAP_ROWS - 2 || c > MapConstants.MAP_COLS - 2 || visited[r][c]) continue;
+                if (!isFootprintFree(obstacles, r, c)) continue;
+                visited[r][c] = true;
+                queue.add(new int[]{r, c});
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFootprintFree(boolean[][] obstacles, int row, int col) {
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (obstacles[r][c]) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes an arena in the text format used by maps/*.txt (top row first).
+     */
+    public static void writeArenaFile(boolean[][] obstacles, String path) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+            for (int row = MapConstants.MAP_ROWS - 1; row >= 0; row--) {
+                for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+                    writer.write(obstacles[row][col] ? '1' : '0');
+                }
+                writer.write("\n");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 2017;
+        double density = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+        double clustering = args.length > 3 ? Double.parseDouble(args[3]) : 0.5;
+        int corridorWidth = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        String prefix = args.length > 5 ? args[5] : "maps/generated/Arena";
+
+        File parent = new File(prefix).getParentFile();
+        if (parent != null) parent.mkdirs();
+
+        ArenaGenerator generator = new ArenaGenerator(seed, density, clustering, corridorWidth);
+        long start = System.nanoTime();
+        int obstacleCells = 0;
+        try (ArenaCorpus.Writer writer = new ArenaCorpus.Writer(prefix + ".bin")) {
+            for (int i = 0; i < count; i++) {
+                boolean[][] obstacles = generator.generate();
+                for (boolean[] row : obstacles) for (boolean o : row) if (o) obstacleCells++;
+
+                writer.write(obstacles);
+                if (i < 20) writeArenaFile(obstacles, prefix + "_" + i + ".txt");
+            }
+        }
+
+        System.out.printf("Generated %d arenas (%.1f%% obstacles on average) in %.2f s --> %s.bin%n", count,
+                100.0 * obstacleCells / ((long) count * MapConstants.MAP_SIZE), (System.nanoTime() - start) / 1e9, prefix);
+    }
+}
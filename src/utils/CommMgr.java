@@ -15,18 +15,25 @@ public class CommMgr {
     public static final String EX_START = "EX_START";       // Android --> PC
     public static final String FP_START = "FP_START";       // Android --> PC
     public static final String MAP_STRINGS = "MAP";         // PC --> Android
+    public static final String MAP_DELTA = "MAPD";          // PC --> Android
+    public static final String MAP_REQUEST = "MAP_REQ";     // Android --> PC
     public static final String BOT_POS = "BOT_POS";         // PC --> Android
     public static final String BOT_START = "BOT_START";     // PC --> Arduino
     public static final String INSTRUCTIONS = "INSTR";      // PC --> Arduino
     public static final String SENSOR_DATA = "SDATA";       // Arduino --> PC
 
+    public static final String RPI_HOST = "192.168.2.1";
+    public static final int RPI_PORT = 8008;
+
     private static CommMgr commMgr = null;
     private static Socket conn = null;
 
     private BufferedWriter writer;
     private BufferedReader reader;
+    private final CommStats stats = new CommStats();
 
     private CommMgr() {
+        stats.registerMBean();
     }
 
     public static CommMgr getCommMgr() {
@@ -37,12 +44,19 @@ public class CommMgr {
     }
 
     public void openConnection() {
+        openConnection(RPI_HOST, RPI_PORT);
+    }
+
+    /**
+     * Opens a connection to the given host & port. Used to connect to a stand-in server (e.g. RPiEmulator) instead
+     * of the actual RasPi.
+     */
+    public void openConnection(String host, int port) {
         System.out.println("Opening connection...");
 
         try {
-            String HOST = "192.168.2.1";
-            int PORT = 8008;
-            conn = new Socket(HOST, PORT);
+            conn = new Socket(host, port);
+            conn.setTcpNoDelay(true);
 
             writer = new BufferedWriter(new OutputStreamWriter(new BufferedOutputStream(conn.getOutputStream())));
             reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
@@ -64,6 +78,7 @@ public class CommMgr {
 
     public void closeConnection() {
         System.out.println("Closing connection...");
+        stats.dump();
 
         try {
             reader.close();
@@ -83,22 +98,26 @@ public class CommMgr {
         }
     }
 
-    public void sendMsg(String msg, String msgType) {
+    public synchronized void sendMsg(String msg, String msgType) {
         System.out.println("Sending a message...");
 
         try {
             String outputMsg;
             if (msg == null) {
                 outputMsg = msgType + "\n";
-            } else if (msgType.equals(MAP_STRINGS) || msgType.equals(BOT_POS)) {
+            } else if (msgType.equals(MAP_STRINGS) || msgType.equals(MAP_DELTA) || msgType.equals(BOT_POS)) {
                 outputMsg = msgType + " " + msg + "\n";
             } else {
                 outputMsg = msgType + "\n" + msg + "\n";
             }
 
             System.out.println("Sending out message:\n" + outputMsg);
+            long sendStart = System.nanoTime();
             writer.write(outputMsg);
             writer.flush();
+            stats.recordSend(msgType, outputMsg.length(), sendStart);
+            if (msgType.equals(INSTRUCTIONS)) MotionTelemetry.getMotionTelemetry().instructionSent(msg, sendStart);
+            RunJournal.getRunJournal().recordSend(msgType);
         } catch (IOException e) {
             System.out.println("sendMsg() --> IOException");
         } catch (Exception e) {
@@ -112,9 +131,29 @@ public class CommMgr {
 
         try {
             StringBuilder sb = new StringBuilder();
+            FlightEvents.Receive recvEvent = new FlightEvents.Receive();
+            recvEvent.begin();
+            long recvStart = System.nanoTime();
             String input = reader.readLine();
 
+            // Keyframe requests from the Android tablet are handled here and never returned to the caller.
+            while (input != null && input.equals(MAP_REQUEST)) {
+                AndroidPublisher.getAndroidPublisher().requestKeyframe();
+                input = reader.readLine();
+            }
+
             if (input != null && input.length() > 0) {
+                stats.recordRecv(input, input.length() + 1, recvStart);
+                if (!input.startsWith(EX_START) && !input.startsWith(FP_START)) MotionTelemetry.getMotionTelemetry().replyReceived(System.nanoTime());
+                RunJournal.getRunJournal().recordRecv(input);
+
+                recvEvent.end();
+                if (recvEvent.shouldCommit()) {
+                    recvEvent.msgType = input.split(";")[0].split(" ")[0];
+                    recvEvent.bytes = input.length() + 1;
+                    recvEvent.commit();
+                }
+
                 sb.append(input);
                 System.out.println(sb.toString());
                 return sb.toString();
@@ -129,6 +168,10 @@ public class CommMgr {
         return null;
     }
 
+    public CommStats getStats() {
+        return stats;
+    }
+
     public boolean isConnected() {
         return conn.isConnected();
     }
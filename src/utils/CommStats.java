@@ -0,0 +1,173 @@
+package utils;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation for the CommMgr. Keeps per-message-type counters and latency histograms for:
+ *
+ * send TYPE:     time spent writing & flushing a message
+ * recv TYPE:     time spent blocked in recvMsg() until a message arrived
+ * rtt INSTR->TYPE: time from sending an INSTR to receiving the robot's reply
+ *
+ * Exposed through JMX as utils:type=CommStats.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class CommStats implements CommStatsMBean {
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> msgCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> byteCounts = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> pendingInstructions = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder recvWaitNanos = new LongAdder();
+
+    /**
+     * Registers this object with the platform MBean server.
+     */
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("utils:type=CommStats");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (Exception e) {
+            System.out.println("CommStats.registerMBean() --> Exception");
+            System.out.println(e.toString());
+        }
+    }
+
+    private LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    private void count(String key, int bytes) {
+        msgCounts.computeIfAbsent(key, k -> new LongAdder()).increment();
+        byteCounts.computeIfAbsent(key, k -> new LongAdder()).add(bytes);
+    }
+
+    /**
+     * Records a sent message. sendStart is the System.nanoTime() before writing the message.
+     */
+    public void recordSend(String msgType, int bytes, long sendStart) {
+        long now = System.nanoTime();
+        histogram("send " + msgType).record(now - sendStart);
+        count("sent " + msgType, bytes);
+        messagesSent.increment();
+        bytesSent.add(bytes);
+
+        if (msgType.equals(CommMgr.INSTRUCTIONS)) pendingInstructions.add(now);
+    }
+
+    /**
+     * Records a received message. recvStart is the System.nanoTime() before blocking on the socket. Messages other
+     * than EX_START & FP_START are matched to the oldest unanswered INSTR to get its round trip time.
+     */
+    public void recordRecv(String msg, int bytes, long recvStart) {
+        long now = System.nanoTime();
+        String msgType = msg.split(";")[0].split(" ")[0];
+
+        histogram("recv " + msgType).record(now - recvStart);
+        count("recv " + msgType, bytes);
+        messagesReceived.increment();
+        bytesReceived.add(bytes);
+        recvWaitNanos.add(now - recvStart);
+
+        if (!msgType.equals(CommMgr.EX_START) && !msgType.equals(CommMgr.FP_START)) {
+            Long sent = pendingInstructions.poll();
+            if (sent != null) histogram("rtt " + CommMgr.INSTRUCTIONS + "->" + msgType).record(now - sent);
+        }
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Returns the total time spent blocked in recvMsg() (ms).
+     */
+    public double getRecvWaitMillis() {
+        return recvWaitNanos.sum() / 1e6;
+    }
+
+    public long getRecvWaitNanos() {
+        return recvWaitNanos.sum();
+    }
+
+    public String[] getHistogramNames() {
+        return new TreeSet<>(histograms.keySet()).toArray(new String[0]);
+    }
+
+    public double percentileMillis(String histogram, double percentile) {
+        LatencyHistogram h = histograms.get(histogram);
+        return h == null ? 0 : h.getPercentile(percentile) / 1e6;
+    }
+
+    public double maxMillis(String histogram) {
+        LatencyHistogram h = histograms.get(histogram);
+        return h == null ? 0 : h.getMax() / 1e6;
+    }
+
+    /**
+     * Returns one line per counter and histogram with the message count, bytes and p50/p99/max latency in ms.
+     */
+    public String[] getSummary() {
+        ArrayList<String> lines = new ArrayList<>();
+
+        for (String key : new TreeSet<>(msgCounts.keySet())) {
+            lines.add(String.format("%-24s %8d msgs %10d bytes", key, msgCounts.get(key).sum(), byteCounts.get(key).sum()));
+        }
+
+        for (String name : getHistogramNames()) {
+            LatencyHistogram h = histograms.get(name);
+            lines.add(String.format("%-24s %8d  p50 %8.3f ms  p99 %8.3f ms  max %8.3f ms", name, h.getCount(),
+                    h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6));
+        }
+
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * Prints the summary to stdout.
+     */
+    public void dump() {
+        System.out.println("Communication stats: " + getMessagesSent() + " sent (" + getBytesSent() + " bytes), " + getMessagesReceived() + " received (" + getBytesReceived() + " bytes)");
+        for (String line : getSummary()) {
+            System.out.println("  " + line);
+        }
+    }
+
+    public void reset() {
+        histograms.clear();
+        msgCounts.clear();
+        byteCounts.clear();
+        pendingInstructions.clear();
+        messagesSent.reset();
+        messagesReceived.reset();
+        bytesSent.reset();
+        bytesReceived.reset();
+        recvWaitNanos.reset();
+    }
+}
@@ -0,0 +1,29 @@
+package utils;
+
+/**
+ * JMX management interface for CommStats.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public interface CommStatsMBean {
+    long getMessagesSent();
+
+    long getMessagesReceived();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    double getRecvWaitMillis();
+
+    String[] getHistogramNames();
+
+    String[] getSummary();
+
+    double percentileMillis(String histogram, double percentile);
+
+    double maxMillis(String histogram);
+
+    void reset();
+}
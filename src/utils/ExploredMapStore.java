@@ -0,0 +1,95 @@
+package utils;
+
+import map.Map;
+import robot.RobotConstants.DIRECTION;
+import robot.RobotConstants.MOVEMENT;
+
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ * Persists the explored map together with the precomputed START --> GOAL plan, so that the fastest path run can be
+ * started immediately even if the PC was restarted after the exploration run.
+ *
+ * File format (one entry per line):
+ * P1 [Part 1 descriptor]
+ * P2 [Part 2 descriptor]
+ * PLAN [startRow],[startCol],[startDir] [goalRow],[goalCol] [movements]
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class ExploredMapStore {
+    public static final String DEFAULT_FILE = "explored_map.txt";
+
+    private ExploredMapStore() {
+    }
+
+    /**
+     * Saves the map and, if given, the plan from [startRow, startCol] facing startDir to [goalRow, goalCol].
+     */
+    public static void save(String filename, Map map, int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol, ArrayList<MOVEMENT> plan) {
+        String[] mapStrings = MapDescriptor.encodeMapDescriptor(map);
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            writer.write("P1 " + mapStrings[0] + "\n");
+            writer.write("P2 " + mapStrings[1] + "\n");
+
+            if (plan != null) {
+                StringBuilder moves = new StringBuilder();
+                for (MOVEMENT m : plan) moves.append(MOVEMENT.print(m));
+                writer.write("PLAN " + startRow + "," + startCol + "," + DIRECTION.print(startDir) + " " + goalRow + "," + goalCol + " " + moves + "\n");
+            }
+
+            System.out.println("Explored map saved to " + filename);
+        } catch (IOException e) {
+            System.out.println("ExploredMapStore.save() --> IOException");
+        }
+    }
+
+    /**
+     * Loads the saved map into the passed Map object. Returns the stored plan if it starts at
+     * [startRow, startCol] facing startDir and ends at [goalRow, goalCol], or null otherwise. Returns null and leaves
+     * the map untouched if there is no (valid) saved map.
+     */
+    public static ArrayList<MOVEMENT> load(String filename, Map map, int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol) {
+        File file = new File(filename);
+        if (!file.exists()) return null;
+
+        String part1 = null, part2 = null, planLine = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("P1 ")) part1 = line.substring(3).trim();
+                else if (line.startsWith("P2 ")) part2 = line.substring(3).trim();
+                else if (line.startsWith("PLAN ")) planLine = line.substring(5).trim();
+            }
+        } catch (IOException e) {
+            System.out.println("ExploredMapStore.load() --> IOException");
+            return null;
+        }
+
+        if (part1 == null || part2 == null) return null;
+        try {
+            MapDescriptor.loadMapFromDescriptor(map, part1, part2);
+        } catch (IllegalArgumentException e) {
+            System.out.println("ExploredMapStore.load() --> " + e.getMessage());
+            return null;
+        }
+        System.out.println("Explored map loaded from " + filename);
+
+        if (planLine == null) return null;
+        String[] planArr = planLine.split(" ");
+        String expectedStart = startRow + "," + startCol + "," + DIRECTION.print(startDir);
+        String expectedGoal = goalRow + "," + goalCol;
+        if (planArr.length < 3 || !planArr[0].equals(expectedStart) || !planArr[1].equals(expectedGoal)) return null;
+
+        ArrayList<MOVEMENT> plan = new ArrayList<>();
+        for (char c : planArr[2].toCharArray()) {
+            MOVEMENT m = MOVEMENT.parse(c);
+            if (m == MOVEMENT.ERROR) return null;
+            plan.add(m);
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,96 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Custom Java Flight Recorder events marking the logical phases of a run, so that CPU samples & waits in a recording
+ * can be tied to planning, sensing, moving/calibrating and waiting for the robot.
+ *
+ * e.g. java -XX:StartFlightRecording=filename=run.jfr simulator.HeadlessRunner ...
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class FlightEvents {
+    private FlightEvents() {
+    }
+
+    @Name("mdp.Planning")
+    @Label("Planning")
+    @Category("MDP")
+    @Description("A* search from the robot's position to a goal")
+    public static class Planning extends Event {
+        @Label("Start Row")
+        public int startRow;
+
+        @Label("Start Column")
+        public int startCol;
+
+        @Label("Goal Row")
+        public int goalRow;
+
+        @Label("Goal Column")
+        public int goalCol;
+
+        @Label("Expansions")
+        public int expansions;
+
+        @Label("Open Set Peak")
+        public int openSetPeak;
+
+        @Label("Path Found")
+        public boolean pathFound;
+    }
+
+    @Name("mdp.Sensing")
+    @Label("Sensing")
+    @Category("MDP")
+    @Description("Reading a sensor frame & updating the explored map")
+    public static class Sensing extends Event {
+        @Label("Real Robot")
+        public boolean realBot;
+
+        @Label("Cells Updated")
+        public int cellsUpdated;
+    }
+
+    @Name("mdp.Move")
+    @Label("Move")
+    @Category("MDP")
+    @Description("One exploration step: the movement, the sensor frame & any calibration that follows")
+    public static class Move extends Event {
+        @Label("Movement")
+        public String movement;
+
+        @Label("Row")
+        public int row;
+
+        @Label("Column")
+        public int col;
+    }
+
+    @Name("mdp.Calibration")
+    @Label("Calibration")
+    @Category("MDP")
+    @Description("Turning towards a wall, calibrating & turning back")
+    public static class Calibration extends Event {
+        @Label("Direction")
+        public String direction;
+    }
+
+    @Name("mdp.Receive")
+    @Label("Receive")
+    @Category("MDP")
+    @Description("Blocked in CommMgr.recvMsg() waiting for a message")
+    public static class Receive extends Event {
+        @Label("Message Type")
+        public String msgType;
+
+        @Label("Bytes")
+        public int bytes;
+    }
+}
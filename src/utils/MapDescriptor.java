@@ -21,31 +21,178 @@ public class MapDescriptor {
      */
     public static void loadMapFromDisk(Map map, String filename) {
         try {
-            InputStream inputStream = new FileInputStream("maps/" + filename + ".txt");
-            BufferedReader buf = new BufferedReader(new InputStreamReader(inputStream));
+            boolean[][] obstacles = readArenaFile("maps/" + filename + ".txt");
+            int[] rows = new int[MapConstants.MAP_ROWS];
+            for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
+                for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+                    if (obstacles[row][col]) rows[row] |= 1 << col;
+                }
+            }
+
+            map.setObstacleRows(rows);
+            map.setAllExplored();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
+    /**
+     * Reads an arena text file and returns its obstacles indexed by [row][col]. The file lists the rows from the top
+     * (row MAP_ROWS - 1) to the bottom (row 0).
+     */
+    public static boolean[][] readArenaFile(String path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader buf = new BufferedReader(new InputStreamReader(new FileInputStream(path)))) {
             String line = buf.readLine();
-            StringBuilder sb = new StringBuilder();
             while (line != null) {
                 sb.append(line);
                 line = buf.readLine();
             }
+        }
 
-            String bin = sb.toString();
-            int binPtr = 0;
-            for (int row = MapConstants.MAP_ROWS - 1; row >= 0; row--) {
-                for (int col = 0; col < MapConstants.MAP_COLS; col++) {
-                    if (bin.charAt(binPtr) == '1') map.setObstacleCell(row, col, true);
-                    binPtr++;
-                }
+        String bin = sb.toString();
+        if (bin.length() < MapConstants.MAP_SIZE) throw new IOException(path + " has fewer than " + MapConstants.MAP_SIZE + " cells");
+
+        boolean[][] obstacles = new boolean[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
+        int binPtr = 0;
+        for (int row = MapConstants.MAP_ROWS - 1; row >= 0; row--) {
+            for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+                obstacles[row][col] = bin.charAt(binPtr) == '1';
+                binPtr++;
             }
+        }
+        return obstacles;
+    }
 
-            map.setAllExplored();
-        } catch (IOException e) {
-            e.printStackTrace();
+    static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+    private static final int[] HEX_VALUES = new int[128];
+
+    static {
+        java.util.Arrays.fill(HEX_VALUES, -1);
+        for (int i = 0; i < HEX_CHARS.length; i++) {
+            HEX_VALUES[HEX_CHARS[i]] = i;
+            HEX_VALUES[Character.toUpperCase(HEX_CHARS[i])] = i;
         }
     }
 
+    /**
+     * Generates Part 1 & Part 2 map descriptor strings from the passed Map object and prints them.
+     */
+    public static String[] generateMapDescriptor(Map map) {
+        String[] ret = encodeMapDescriptor(map);
+        System.out.println("P1: " + ret[0]);
+        System.out.println("P2: " + ret[1]);
+        return ret;
+    }
+
+    /**
+     * Generates Part 1 & Part 2 map descriptor strings from the passed Map object. The explored & obstacle bits are
+     * packed MSB-first into 64-bit words which are then emitted a nibble at a time through a lookup table.
+     *
+     * As in the original format, a trailing group of fewer than 4 bits in Part 2 is emitted as the value of those
+     * bits i.e. it is not padded.
+     */
+    public static String[] encodeMapDescriptor(Map map) {
+        byte[] states = new byte[MapConstants.MAP_SIZE];
+        map.copyCellStates(states);
+        return encodeMapDescriptor(states);
+    }
+
+    /**
+     * Generates Part 1 & Part 2 map descriptor strings from cell states copied with Map.copyCellStates().
+     */
+    public static String[] encodeMapDescriptor(byte[] states) {
+        long[] exploredBits = new long[(MapConstants.MAP_SIZE + 4 + 63) / 64];
+        long[] obstacleBits = new long[(MapConstants.MAP_SIZE + 63) / 64];
+
+        // Part 1 is framed by "11" at both ends.
+        exploredBits[0] = 0b11L << 62;
+        int p1Len = 2;
+        int p2Len = 0;
+        for (byte state : states) {
+            if (state != MapConstants.CELL_UNEXPLORED) {
+                exploredBits[p1Len >>> 6] |= 1L << (63 - (p1Len & 63));
+                if (state == MapConstants.CELL_OBSTACLE) obstacleBits[p2Len >>> 6] |= 1L << (63 - (p2Len & 63));
+                p2Len++;
+            }
+            p1Len++;
+        }
+        exploredBits[p1Len >>> 6] |= 1L << (63 - (p1Len & 63));
+        exploredBits[(p1Len + 1) >>> 6] |= 1L << (63 - ((p1Len + 1) & 63));
+        p1Len += 2;
+
+        return new String[]{bitsToHex(exploredBits, p1Len), bitsToHex(obstacleBits, p2Len)};
+    }
+
+    /**
+     * Emits the first numBits of the packed words as hex digits.
+     */
+    private static String bitsToHex(long[] words, int numBits) {
+        int fullNibbles = numBits >>> 2;
+        int remBits = numBits & 3;
+        char[] out = new char[fullNibbles + (remBits > 0 ? 1 : 0)];
+
+        for (int i = 0; i < fullNibbles; i++) {
+            out[i] = HEX_CHARS[(int) (words[i >>> 4] >>> (60 - ((i & 15) << 2))) & 0xF];
+        }
+        if (remBits > 0) {
+            int nibble = (int) (words[fullNibbles >>> 4] >>> (60 - ((fullNibbles & 15) << 2))) & 0xF;
+            out[fullNibbles] = HEX_CHARS[nibble >>> (4 - remBits)];
+        }
+
+        return new String(out);
+    }
+
+    private static int hexValue(String hex, int i) {
+        char ch = hex.charAt(i);
+        int val = ch < 128 ? HEX_VALUES[ch] : -1;
+        if (val < 0) throw new IllegalArgumentException("Invalid hex digit '" + ch + "' in map descriptor");
+        return val;
+    }
+
+    /**
+     * Loads Part 1 & Part 2 map descriptor strings into the passed Map object. Cells are set to explored/unexplored
+     * according to Part 1 and explored cells are set to obstacles according to Part 2.
+     */
+    public static void loadMapFromDescriptor(Map map, String part1, String part2) {
+        int p1Bits = MapConstants.MAP_SIZE + 4;
+        if (part1.length() * 4 != p1Bits) {
+            throw new IllegalArgumentException("Part 1 must have " + (p1Bits / 4) + " hex digits");
+        }
+
+        boolean[] explored = new boolean[MapConstants.MAP_SIZE];
+        int numExplored = 0;
+        for (int i = 0; i < MapConstants.MAP_SIZE; i++) {
+            int bit = i + 2;
+            explored[i] = ((hexValue(part1, bit >>> 2) >>> (3 - (bit & 3))) & 1) == 1;
+            if (explored[i]) numExplored++;
+        }
+
+        int remBits = numExplored & 3;
+        if (part2.length() != (numExplored >>> 2) + (remBits > 0 ? 1 : 0)) {
+            throw new IllegalArgumentException("Part 2 does not match the " + numExplored + " explored cells in Part 1");
+        }
+
+        int[] rows = new int[MapConstants.MAP_ROWS];
+        int p2Ptr = 0;
+        int lastGroup = numExplored - remBits;
+        for (int i = 0; i < MapConstants.MAP_SIZE; i++) {
+            int r = i / MapConstants.MAP_COLS;
+            int c = i % MapConstants.MAP_COLS;
+            map.getCell(r, c).setIsExplored(explored[i]);
+            if (!explored[i]) continue;
+
+            int nibble = hexValue(part2, p2Ptr >>> 2);
+            int bit;
+            if (p2Ptr < lastGroup) bit = (nibble >>> (3 - (p2Ptr & 3))) & 1;
+            else bit = (nibble >>> (remBits - 1 - (p2Ptr & 3))) & 1;
+
+            if (bit == 1) rows[r] |= 1 << c;
+            p2Ptr++;
+        }
+        map.setObstacleRows(rows);
+    }
+
     /**
      * Helper method to convert a binary string to a hex string.
      */
@@ -56,9 +203,9 @@ public class MapDescriptor {
     }
 
     /**
-     * Generates Part 1 & Part 2 map descriptor strings from the passed Map object.
+     * Original string-based implementation of encodeMapDescriptor(). Kept for MapDescriptorBenchmark.
      */
-    public static String[] generateMapDescriptor(Map map) {
+    static String[] generateMapDescriptorLegacy(Map map) {
         String[] ret = new String[2];
 
         StringBuilder Part1 = new StringBuilder();
@@ -79,7 +226,6 @@ public class MapDescriptor {
         }
         Part1_bin.append("11");
         Part1.append(binToHex(Part1_bin.toString()));
-        System.out.println("P1: " + Part1.toString());
         ret[0] = Part1.toString();
 
         StringBuilder Part2 = new StringBuilder();
@@ -100,7 +246,6 @@ public class MapDescriptor {
             }
         }
         if (Part2_bin.length() > 0) Part2.append(binToHex(Part2_bin.toString()));
-        System.out.println("P2: " + Part2.toString());
         ret[1] = Part2.toString();
 
         return ret;
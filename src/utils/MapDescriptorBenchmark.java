@@ -0,0 +1,88 @@
+package utils;
+
+import map.Map;
+import map.MapConstants;
+import robot.Robot;
+import robot.RobotConstants;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the table-driven map descriptor encoder with the original string-based implementation and checks that
+ * both produce the same strings & that the decoder restores the map.
+ *
+ * Usage: MapDescriptorBenchmark [mapName] [iterations]
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class MapDescriptorBenchmark {
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        String filename = args.length > 0 ? args[0] : "SampleArena1";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        Robot bot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, false);
+        Map arena = new Map(bot);
+        MapDescriptor.loadMapFromDisk(arena, filename);
+
+        // Partially explored maps exercise the unpadded last group of Part 2.
+        Random random = new Random(42);
+        Map[] maps = new Map[16];
+        for (int i = 0; i < maps.length; i++) {
+            maps[i] = new Map(bot);
+            maps[i].setAllUnexplored();
+            for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
+                for (int c = 0; c < MapConstants.MAP_COLS; c++) {
+                    if (random.nextInt(maps.length) <= i) {
+                        maps[i].getCell(r, c).setIsExplored(true);
+                        if (arena.isObstacleCell(r, c)) maps[i].setObstacleCell(r, c, true);
+                    }
+                }
+            }
+        }
+
+        for (Map map : maps) {
+            String[] legacy = MapDescriptor.generateMapDescriptorLegacy(map);
+            String[] encoded = MapDescriptor.encodeMapDescriptor(map);
+            if (!Arrays.equals(legacy, encoded)) {
+                System.out.println("Mismatch!\nLegacy:  " + Arrays.toString(legacy) + "\nEncoded: " + Arrays.toString(encoded));
+                return;
+            }
+
+            Map decoded = new Map(bot);
+            MapDescriptor.loadMapFromDescriptor(decoded, encoded[0], encoded[1]);
+            if (!Arrays.equals(encoded, MapDescriptor.encodeMapDescriptor(decoded))) {
+                System.out.println("Decoded map does not match!");
+                return;
+            }
+        }
+        System.out.println("Encoder & decoder verified on " + maps.length + " maps.");
+
+        for (int round = 0; round < 3; round++) {
+            long legacyNanos = time(maps, iterations, true);
+            long encodeNanos = time(maps, iterations, false);
+            System.out.printf("Round %d: legacy %.1f ns/op, table-driven %.1f ns/op (%.1fx)%n", round + 1,
+                    (double) legacyNanos / iterations, (double) encodeNanos / iterations, (double) legacyNanos / encodeNanos);
+        }
+
+        String[] encoded = MapDescriptor.encodeMapDescriptor(arena);
+        Map decoded = new Map(bot);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            MapDescriptor.loadMapFromDescriptor(decoded, encoded[0], encoded[1]);
+        }
+        System.out.printf("Decoder: %.1f ns/op%n", (double) (System.nanoTime() - start) / iterations);
+    }
+
+    private static long time(Map[] maps, int iterations, boolean legacy) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Map map = maps[i % maps.length];
+            sink = legacy ? MapDescriptor.generateMapDescriptorLegacy(map) : MapDescriptor.encodeMapDescriptor(map);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,217 @@
+package utils;
+
+import robot.RobotConstants.MOVEMENT;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Planner & exploration counters updated on the hot paths. Exposed through JMX as utils:type=Metrics; snapshot()
+ * returns a consistent-enough copy for batch evaluation.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class Metrics implements MetricsMBean {
+    private static Metrics metrics = null;
+
+    private final LongAdder plans = new LongAdder();
+    private final LongAdder nodesExpanded = new LongAdder();
+    private final LongAccumulator openSetPeak = new LongAccumulator(Math::max, 0);
+    private final LongAdder planningNanos = new LongAdder();
+    private final LongAdder[] moves = new LongAdder[MOVEMENT.values().length];
+    private final LongAdder sensorFrames = new LongAdder();
+    private final LongAdder sensingNanos = new LongAdder();
+    private final LongAdder turnsSaved = new LongAdder();
+    private final LongAdder replans = new LongAdder();
+    private final LongAdder earlyTerminations = new LongAdder();
+
+    private Metrics() {
+        for (int i = 0; i < moves.length; i++) moves[i] = new LongAdder();
+        registerMBean();
+    }
+
+    public static Metrics getMetrics() {
+        if (metrics == null) {
+            metrics = new Metrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Registers this object with the platform MBean server.
+     */
+    private void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("utils:type=Metrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (Exception e) {
+            System.out.println("Metrics.registerMBean() --> Exception");
+            System.out.println(e.toString());
+        }
+    }
+
+    /**
+     * Records one A* search: the no. of nodes expanded, the largest size of the open set & the time taken.
+     */
+    public void recordPlan(int expanded, int openPeak, long nanos) {
+        plans.increment();
+        nodesExpanded.add(expanded);
+        openSetPeak.accumulate(openPeak);
+        planningNanos.add(nanos);
+    }
+
+    /**
+     * Records count movements of type m (count > 1 for multi-cell forward moves).
+     */
+    public void recordMove(MOVEMENT m, int count) {
+        moves[m.ordinal()].add(count);
+        RunReport.recordStep(m, count);
+    }
+
+    /**
+     * Records one sensor frame read & processed since senseStart (System.nanoTime()). recvWaitStart is
+     * CommStats.getRecvWaitNanos() at senseStart; the time spent blocked waiting for the frame is left out, as it is
+     * already counted as communication wait.
+     */
+    public void recordSensorFrame(long senseStart, long recvWaitStart) {
+        long recvWait = CommMgr.getCommMgr().getStats().getRecvWaitNanos() - recvWaitStart;
+        sensorFrames.increment();
+        sensingNanos.add(System.nanoTime() - senseStart - recvWait);
+        RunReport.recordSensorFrame();
+    }
+
+    /**
+     * Records the turns removed from a planned path by the PathSmoother.
+     */
+    public void recordTurnsSaved(int turns) {
+        turnsSaved.add(turns);
+    }
+
+    public void recordReplan() {
+        replans.increment();
+    }
+
+    public void recordEarlyTermination() {
+        earlyTerminations.increment();
+    }
+
+    public long getPlans() {
+        return plans.sum();
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded.sum();
+    }
+
+    public long getOpenSetPeak() {
+        return openSetPeak.get();
+    }
+
+    public double getPlanningMillis() {
+        return planningNanos.sum() / 1e6;
+    }
+
+    public long getMoves(MOVEMENT m) {
+        return moves[m.ordinal()].sum();
+    }
+
+    public long getForwardCells() {
+        return getMoves(MOVEMENT.FORWARD);
+    }
+
+    public long getTurns() {
+        return getMoves(MOVEMENT.LEFT) + getMoves(MOVEMENT.RIGHT);
+    }
+
+    public long getCalibrations() {
+        return getMoves(MOVEMENT.CALIBRATE);
+    }
+
+    public long getSensorFrames() {
+        return sensorFrames.sum();
+    }
+
+    public double getSensingMillis() {
+        return sensingNanos.sum() / 1e6;
+    }
+
+    public long getTurnsSaved() {
+        return turnsSaved.sum();
+    }
+
+    public long getReplans() {
+        return replans.sum();
+    }
+
+    public long getEarlyTerminations() {
+        return earlyTerminations.sum();
+    }
+
+    /**
+     * Returns a copy of the current values.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    public String[] getSummary() {
+        return snapshot().toString().split("\n");
+    }
+
+    public void reset() {
+        plans.reset();
+        nodesExpanded.reset();
+        openSetPeak.reset();
+        planningNanos.reset();
+        for (LongAdder m : moves) m.reset();
+        sensorFrames.reset();
+        sensingNanos.reset();
+        turnsSaved.reset();
+        replans.reset();
+        earlyTerminations.reset();
+    }
+
+    /**
+     * Immutable copy of the metrics at one point in time.
+     */
+    public static class Snapshot {
+        public final long plans;
+        public final long nodesExpanded;
+        public final long openSetPeak;
+        public final double planningMillis;
+        public final long forwardCells;
+        public final long backwardCells;
+        public final long turns;
+        public final long calibrations;
+        public final long sensorFrames;
+        public final double sensingMillis;
+        public final long turnsSaved;
+        public final long replans;
+        public final long earlyTerminations;
+
+        private Snapshot(Metrics m) {
+            plans = m.getPlans();
+            nodesExpanded = m.getNodesExpanded();
+            openSetPeak = m.getOpenSetPeak();
+            planningMillis = m.getPlanningMillis();
+            forwardCells = m.getForwardCells();
+            backwardCells = m.getMoves(MOVEMENT.BACKWARD);
+            turns = m.getTurns();
+            calibrations = m.getCalibrations();
+            sensorFrames = m.getSensorFrames();
+            sensingMillis = m.getSensingMillis();
+            turnsSaved = m.getTurnsSaved();
+            replans = m.getReplans();
+            earlyTerminations = m.getEarlyTerminations();
+        }
+
+        public String toString() {
+            return String.format("plans=%d%nnodesExpanded=%d%nopenSetPeak=%d%nplanningMillis=%.3f%nforwardCells=%d%nbackwardCells=%d%nturns=%d%ncalibrations=%d%nsensorFrames=%d%nsensingMillis=%.3f%nturnsSaved=%d%nreplans=%d%nearlyTerminations=%d", plans, nodesExpanded, openSetPeak, planningMillis, forwardCells, backwardCells, turns, calibrations, sensorFrames, sensingMillis, turnsSaved, replans, earlyTerminations);
+        }
+    }
+}
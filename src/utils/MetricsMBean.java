@@ -0,0 +1,37 @@
+package utils;
+
+/**
+ * JMX management interface for Metrics.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public interface MetricsMBean {
+    long getPlans();
+
+    long getNodesExpanded();
+
+    long getOpenSetPeak();
+
+    double getPlanningMillis();
+
+    long getForwardCells();
+
+    long getTurns();
+
+    long getCalibrations();
+
+    long getSensorFrames();
+
+    double getSensingMillis();
+
+    long getTurnsSaved();
+
+    long getReplans();
+
+    long getEarlyTerminations();
+
+    String[] getSummary();
+
+    void reset();
+}
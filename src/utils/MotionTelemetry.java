@@ -0,0 +1,96 @@
+package utils;
+
+import robot.MotionCostModel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Collects the measured duration of each instruction sent to the robot, for fitting a MotionCostModel. Fed by the
+ * CommMgr: an instruction's duration is the time from when the robot could start it (when it was sent or when the
+ * previous reply arrived, whichever is later) until its reply arrives, so instructions sent ahead of time (see
+ * ExplorationAlgo.setPipelineWindow()) are not charged for the ones before them.
+ *
+ * Only instructions that the robot replies to are measured; replies are matched to instructions in order. The
+ * exploration only moves one cell at a time, so the multi-cell runs ('2'..'9', '0') of the fastest path are what
+ * separate runStartCost from moveCost.
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class MotionTelemetry {
+    private static MotionTelemetry motionTelemetry = null;
+
+    private final ArrayDeque<Object[]> pending = new ArrayDeque<>();   // [instruction, send time]
+    private final ArrayList<Integer> runLengths = new ArrayList<>();
+    private final ArrayList<Double> runTimes = new ArrayList<>();
+    private final ArrayList<Double> turnTimes = new ArrayList<>();
+    private long lastReply = 0;
+
+    private MotionTelemetry() {
+    }
+
+    public static MotionTelemetry getMotionTelemetry() {
+        if (motionTelemetry == null) {
+            motionTelemetry = new MotionTelemetry();
+        }
+        return motionTelemetry;
+    }
+
+    /**
+     * Records an instruction sent at the given System.nanoTime().
+     */
+    public synchronized void instructionSent(String instruction, long nanos) {
+        pending.add(new Object[]{instruction, nanos});
+    }
+
+    /**
+     * Records a reply from the robot received at the given System.nanoTime() and attributes it to the oldest pending
+     * instruction.
+     */
+    public synchronized void replyReceived(long nanos) {
+        Object[] instr = pending.poll();
+        if (instr == null) return;
+
+        String instruction = (String) instr[0];
+        long start = Math.max((Long) instr[1], lastReply);
+        double millis = (nanos - start) / 1e6;
+        lastReply = nanos;
+
+        if (instruction.length() != 1) return;
+        char c = instruction.charAt(0);
+        if (c == 'F') {
+            runLengths.add(1);
+            runTimes.add(millis);
+        } else if (Character.isDigit(c)) {
+            runLengths.add(c == '0' ? 10 : c - '0');
+            runTimes.add(millis);
+        } else if (c == 'L' || c == 'R') {
+            turnTimes.add(millis);
+        }
+    }
+
+    /**
+     * Returns the model fitted to the samples so far, or null if there are not enough samples.
+     */
+    public synchronized MotionCostModel fit() {
+        if (runLengths.isEmpty() || turnTimes.isEmpty()) return null;
+
+        int[] k = new int[runLengths.size()];
+        double[] t = new double[runTimes.size()];
+        for (int i = 0; i < k.length; i++) {
+            k[i] = runLengths.get(i);
+            t[i] = runTimes.get(i);
+        }
+
+        double turnTime = 0;
+        for (double x : turnTimes) turnTime += x;
+        turnTime /= turnTimes.size();
+
+        return MotionCostModel.fit(k, t, turnTime);
+    }
+
+    public synchronized int getSampleCount() {
+        return runLengths.size() + turnTimes.size();
+    }
+}
@@ -0,0 +1,298 @@
+package utils;
+
+import map.Map;
+import map.MapConstants;
+import robot.RobotConstants.DIRECTION;
+import robot.RobotConstants.MOVEMENT;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// @formatter:off
+/**
+ * Append-only binary journal of a real run. Records are written into one of two preallocated buffers; a full buffer
+ * is written to disk on a background thread while the other one is being filled.
+ *
+ * Header:  int MAGIC ('MDPJ'), int VERSION, long start time (epoch ms)
+ * Record:  byte type, long nanoseconds since start, payload
+ *
+ *   MOVE:        byte movement, byte count, byte row, byte col, byte dir
+ *   CALIBRATION: byte row, byte col, byte dir
+ *   SENSOR:      byte no. of values, byte value...
+ *   MAP_DELTA:   short no. of cells, (short index, byte state)...
+ *   RECV:        int no. of INSTR/BOT_START messages sent so far, short length, UTF-8 message
+ *
+ * RECV records allow JournalReplayer to feed the received messages back at exactly the same points of the run.
+ *
+ * @author Suyash Lakhotia
+ */
+// @formatter:on
+
+public class RunJournal {
+    public static final int MAGIC = 0x4D44504A;
+    public static final int VERSION = 1;
+    public static final int BUFFER_SIZE = 256 * 1024;
+
+    public static final byte MOVE = 1;
+    public static final byte CALIBRATION = 2;
+    public static final byte SENSOR = 3;
+    public static final byte MAP_DELTA = 4;
+    public static final byte RECV = 5;
+
+    private static RunJournal journal = null;
+
+    private ByteBuffer current = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ExecutorService flusher;
+    private Future<?> pendingFlush;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private volatile boolean recording;
+    private boolean shutdownHookAdded;
+
+    private long startNanos;
+    private int robotSends;
+    private final byte[] lastStates = new byte[MapConstants.MAP_SIZE];
+    private final byte[] states = new byte[MapConstants.MAP_SIZE];
+
+    private RunJournal() {
+    }
+
+    public static RunJournal getRunJournal() {
+        if (journal == null) {
+            journal = new RunJournal();
+        }
+        return journal;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Starts recording to a new journal file.
+     */
+    public synchronized void start(String path) {
+        if (recording) stop();
+
+        try {
+            file = new RandomAccessFile(path, "rw");
+            file.setLength(0);
+            channel = file.getChannel();
+        } catch (IOException e) {
+            System.out.println("RunJournal.start() --> IOException");
+            return;
+        }
+
+        flusher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "RunJournal");
+            t.setDaemon(true);
+            return t;
+        });
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+            shutdownHookAdded = true;
+        }
+
+        current.clear();
+        current.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+        startNanos = System.nanoTime();
+        robotSends = 0;
+        java.util.Arrays.fill(lastStates, MapConstants.CELL_UNEXPLORED);
+        recording = true;
+
+        System.out.println("Recording run journal to " + path);
+    }
+
+    /**
+     * Writes out the remaining records and closes the journal file.
+     */
+    public synchronized void stop() {
+        if (!recording) return;
+        recording = false;
+
+        swapBuffers();
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+            channel.close();
+            file.close();
+        } catch (InterruptedException | IOException e) {
+            System.out.println("RunJournal.stop() --> Exception");
+            System.out.println(e.toString());
+        }
+    }
+
+    /**
+     * Hands the current buffer to the flusher thread and continues with the spare one, waiting for the spare one's
+     * previous write to finish if necessary.
+     */
+    private void swapBuffers() {
+        try {
+            if (pendingFlush != null) pendingFlush.get();
+        } catch (Exception e) {
+            System.out.println("RunJournal.swapBuffers() --> Exception");
+            System.out.println(e.toString());
+        }
+
+        final ByteBuffer full = current;
+        full.flip();
+        pendingFlush = flusher.submit(() -> {
+            try {
+                while (full.hasRemaining()) channel.write(full);
+            } catch (IOException e) {
+                System.out.println("RunJournal flush --> IOException");
+            }
+        });
+
+        current = spare;
+        current.clear();
+        spare = full;
+    }
+
+    private void beginRecord(byte type, int payloadSize) {
+        if (current.remaining() < payloadSize + 9) swapBuffers();
+        current.put(type).putLong(System.nanoTime() - startNanos);
+    }
+
+    public synchronized void recordMove(MOVEMENT m, int count, int row, int col, DIRECTION dir) {
+        if (!recording) return;
+
+        if (m == MOVEMENT.CALIBRATE) {
+            beginRecord(CALIBRATION, 3);
+            current.put((byte) row).put((byte) col).put((byte) dir.ordinal());
+        } else {
+            beginRecord(MOVE, 5);
+            current.put((byte) m.ordinal()).put((byte) count).put((byte) row).put((byte) col).put((byte) dir.ordinal());
+        }
+    }
+
+    public synchronized void recordSensorValues(int[] values) {
+        if (!recording) return;
+
+        beginRecord(SENSOR, 1 + values.length);
+        current.put((byte) values.length);
+        for (int v : values) current.put((byte) v);
+    }
+
+    /**
+     * Records the cells of the map that changed since the last call.
+     */
+    public synchronized void recordMapDelta(Map map) {
+        if (!recording) return;
+
+        map.copyCellStates(states);
+        int changed = 0;
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] != lastStates[i]) changed++;
+        }
+        if (changed == 0) return;
+
+        beginRecord(MAP_DELTA, 2 + changed * 3);
+        current.putShort((short) changed);
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] != lastStates[i]) {
+                current.putShort((short) i).put(states[i]);
+                lastStates[i] = states[i];
+            }
+        }
+    }
+
+    /**
+     * Counts messages sent to the robot. Messages for the Android tablet are sent asynchronously and are not counted.
+     */
+    public synchronized void recordSend(String msgType) {
+        if (!recording) return;
+
+        if (msgType.equals(CommMgr.INSTRUCTIONS) || msgType.equals(CommMgr.BOT_START)) robotSends++;
+    }
+
+    public synchronized void recordRecv(String msg) {
+        if (!recording) return;
+
+        byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(bytes.length, Short.MAX_VALUE);
+        beginRecord(RECV, 6 + len);
+        current.putInt(robotSends).putShort((short) len).put(bytes, 0, len);
+    }
+
+    /**
+     * A single decoded journal record.
+     */
+    public static class Entry {
+        public final byte type;
+        public final long nanos;
+        public final int[] values;
+        public final String text;
+
+        private Entry(byte type, long nanos, int[] values, String text) {
+            this.type = type;
+            this.nanos = nanos;
+            this.values = values;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Reads all records of a journal file. For MOVE, values are {movement, count, row, col, dir}; for CALIBRATION
+     * {row, col, dir}; for SENSOR the sensor values; for MAP_DELTA {index, state, index, state, ...} and for RECV
+     * {no. of INSTR/BOT_START messages sent so far} with the message as text.
+     */
+    public static ArrayList<Entry> read(String path) throws IOException {
+        ByteBuffer buf;
+        try (RandomAccessFile f = new RandomAccessFile(path, "r"); FileChannel ch = f.getChannel()) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+
+        if (buf.remaining() < 16 || buf.getInt() != MAGIC) throw new IOException(path + " is not a run journal");
+        if (buf.getInt() != VERSION) throw new IOException(path + " has an unsupported version");
+        buf.getLong();
+
+        ArrayList<Entry> entries = new ArrayList<>();
+        while (buf.remaining() >= 9) {
+            byte type = buf.get();
+            long nanos = buf.getLong();
+            switch (type) {
+                case MOVE:
+                    entries.add(new Entry(type, nanos, new int[]{buf.get(), buf.get(), buf.get(), buf.get(), buf.get()}, null));
+                    break;
+                case CALIBRATION:
+                    entries.add(new Entry(type, nanos, new int[]{buf.get(), buf.get(), buf.get()}, null));
+                    break;
+                case SENSOR: {
+                    int[] values = new int[buf.get()];
+                    for (int i = 0; i < values.length; i++) values[i] = buf.get();
+                    entries.add(new Entry(type, nanos, values, null));
+                    break;
+                }
+                case MAP_DELTA: {
+                    int[] values = new int[buf.getShort() * 2];
+                    for (int i = 0; i < values.length; i += 2) {
+                        values[i] = buf.getShort();
+                        values[i + 1] = buf.get();
+                    }
+                    entries.add(new Entry(type, nanos, values, null));
+                    break;
+                }
+                case RECV: {
+                    int sends = buf.getInt();
+                    byte[] bytes = new byte[buf.getShort()];
+                    buf.get(bytes);
+                    entries.add(new Entry(type, nanos, new int[]{sends}, new String(bytes, StandardCharsets.UTF_8)));
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown record type " + type + " in " + path);
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,161 @@
+package utils;
+
+import map.Map;
+import map.MapConstants;
+import robot.Robot;
+import robot.RobotConstants.MOVEMENT;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Cost breakdown of one exploration or fastest path run: a timeline of the executed moves (with the robot's pose
+ * and the explored cell count once the move's sensor frames have been applied), the totals split into forward cells,
+ * turns, calibrations, sensing (without the wait for the frames), planning & communication wait, and the coverage
+ * curve over time. Exported as NAME.json & NAME.csv (the timeline)
+ * when the run finishes.
+ *
+ * The totals are the differences in Metrics & CommStats between start() and finish().
+ *
+ * @author Suyash Lakhotia
+ */
+
+public class RunReport {
+    private static volatile RunReport current = null;
+
+    private final String name;
+    private final Robot bot;
+    private final Map map;
+    private final long startNanos;
+    private final Metrics.Snapshot startMetrics;
+    private final double startCommWait;
+    private final int startExplored;
+    private final ArrayList<long[]> steps = new ArrayList<>();    // [t (ms), movement, count, row, col, explored]
+    private long[] pendingStep = null;      // last move, updated by its sensor frames until the next move
+
+    private RunReport(String name, Robot bot, Map map) {
+        this.name = name;
+        this.bot = bot;
+        this.map = map;
+        this.startNanos = System.nanoTime();
+        this.startMetrics = Metrics.getMetrics().snapshot();
+        this.startCommWait = CommMgr.getCommMgr().getStats().getRecvWaitMillis();
+        this.startExplored = countExplored(map);
+    }
+
+    /**
+     * Starts recording a report for a run of the given robot on the given (explored) map. Files are written to
+     * name.json & name.csv.
+     */
+    public static RunReport start(String name, Robot bot, Map map) {
+        RunReport report = new RunReport(name, bot, map);
+        current = report;
+        return report;
+    }
+
+    /**
+     * Adds a step to the report being recorded, if any. Called by Metrics.recordMove().
+     */
+    static void recordStep(MOVEMENT m, int count) {
+        RunReport report = current;
+        if (report != null) report.addStep(m, count);
+    }
+
+    /**
+     * Updates the last step of the report being recorded, if any, with the sensor frame just applied. Called by
+     * Metrics.recordSensorFrame().
+     */
+    static void recordSensorFrame() {
+        RunReport report = current;
+        if (report != null) report.updateStep();
+    }
+
+    private synchronized void addStep(MOVEMENT m, int count) {
+        if (pendingStep != null) steps.add(pendingStep);
+        pendingStep = new long[]{0, m.ordinal(), count, 0, 0, 0};
+        updateStep();
+    }
+
+    private synchronized void updateStep() {
+        if (pendingStep == null) return;
+        pendingStep[0] = (System.nanoTime() - startNanos) / 1000000;
+        pendingStep[3] = bot.getRobotPosRow();
+        pendingStep[4] = bot.getRobotPosCol();
+        pendingStep[5] = countExplored(map);
+    }
+
+    private static int countExplored(Map map) {
+        int result = 0;
+        for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
+            for (int c = 0; c < MapConstants.MAP_COLS; c++) {
+                if (map.getCell(r, c).getIsExplored()) result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops recording and writes the JSON & CSV files.
+     */
+    public synchronized void finish() {
+        if (current == this) current = null;
+        if (pendingStep != null) steps.add(pendingStep);
+        pendingStep = null;
+
+        double totalMillis = (System.nanoTime() - startNanos) / 1e6;
+        Metrics.Snapshot end = Metrics.getMetrics().snapshot();
+        double commWait = CommMgr.getCommMgr().getStats().getRecvWaitMillis() - startCommWait;
+
+        try (BufferedWriter json = new BufferedWriter(new FileWriter(name + ".json"))) {
+            json.write("{\n");
+            json.write(String.format("  \"name\": \"%s\",%n", name));
+            json.write("  \"totals\": {\n");
+            json.write(String.format("    \"elapsedMillis\": %.3f,%n", totalMillis));
+            json.write(String.format("    \"forwardCells\": %d,%n", end.forwardCells - startMetrics.forwardCells));
+            json.write(String.format("    \"backwardCells\": %d,%n", end.backwardCells - startMetrics.backwardCells));
+            json.write(String.format("    \"turns\": %d,%n", end.turns - startMetrics.turns));
+            json.write(String.format("    \"calibrations\": %d,%n", end.calibrations - startMetrics.calibrations));
+            json.write(String.format("    \"sensorFrames\": %d,%n", end.sensorFrames - startMetrics.sensorFrames));
+            json.write(String.format("    \"sensingMillis\": %.3f,%n", end.sensingMillis - startMetrics.sensingMillis));
+            json.write(String.format("    \"plans\": %d,%n", end.plans - startMetrics.plans));
+            json.write(String.format("    \"planningMillis\": %.3f,%n", end.planningMillis - startMetrics.planningMillis));
+            json.write(String.format("    \"commWaitMillis\": %.3f,%n", commWait));
+            json.write(String.format("    \"exploredCells\": %d%n", countExplored(map)));
+            json.write("  },\n");
+
+            json.write("  \"timeline\": [");
+            for (int i = 0; i < steps.size(); i++) {
+                long[] s = steps.get(i);
+                json.write(i == 0 ? "\n" : ",\n");
+                json.write(String.format("    {\"t\": %d, \"move\": \"%c\", \"count\": %d, \"row\": %d, \"col\": %d, \"explored\": %d}", s[0], MOVEMENT.print(MOVEMENT.values()[(int) s[1]]), s[2], s[3], s[4], s[5]));
+            }
+            json.write("\n  ],\n");
+
+            // Coverage curve: one point for every change in the explored cell count.
+            json.write(String.format("  \"coverage\": [[0, %d]", startExplored));
+            long lastExplored = startExplored;
+            for (long[] s : steps) {
+                if (s[5] != lastExplored) {
+                    json.write(String.format(", [%d, %d]", s[0], s[5]));
+                    lastExplored = s[5];
+                }
+            }
+            json.write("]\n}\n");
+        } catch (IOException e) {
+            System.out.println("RunReport.finish() --> IOException");
+        }
+
+        try (BufferedWriter csv = new BufferedWriter(new FileWriter(name + ".csv"))) {
+            csv.write("t_ms,move,count,row,col,explored\n");
+            for (long[] s : steps) {
+                csv.write(s[0] + "," + MOVEMENT.print(MOVEMENT.values()[(int) s[1]]) + "," + s[2] + "," + s[3] + "," + s[4] + "," + s[5] + "\n");
+            }
+        } catch (IOException e) {
+            System.out.println("RunReport.finish() --> IOException");
+        }
+
+        System.out.println("Run report written to " + name + ".json & " + name + ".csv");
+    }
+}